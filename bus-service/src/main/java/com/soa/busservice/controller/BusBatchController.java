@@ -0,0 +1,38 @@
+package com.soa.busservice.controller;
+
+import com.soa.busservice.dto.BatchResponse;
+import com.soa.busservice.dto.BusRequest;
+import com.soa.busservice.dto.BusUpdateItem;
+import com.soa.busservice.service.BusService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Batch variants of the bus write endpoints. Items are validated one by one and reported
+ * individually, so a bad row does not reject the rest of the batch.
+ */
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class BusBatchController {
+
+    private final BusService busService;
+
+    @PostMapping("/buses:batch")
+    public ResponseEntity<BatchResponse> createBuses(@RequestBody List<BusRequest> requests) {
+        log.info("REST request to create {} buses", requests.size());
+        return ResponseEntity.ok(busService.createBuses(requests));
+    }
+
+    @PutMapping("/buses:batch")
+    public ResponseEntity<BatchResponse> updateBuses(@RequestBody List<BusUpdateItem> items) {
+        log.info("REST request to update {} buses", items.size());
+        return ResponseEntity.ok(busService.updateBuses(items));
+    }
+}
@@ -1,17 +1,33 @@
 package com.soa.busservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soa.busservice.dto.BusPage;
 import com.soa.busservice.dto.BusRequest;
 import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.dto.FleetStatsResponse;
+import com.soa.busservice.dto.LocationBatchResponse;
+import com.soa.busservice.dto.LocationFix;
 import com.soa.busservice.dto.LocationUpdateRequest;
+import com.soa.busservice.dto.NearbyBusResponse;
 import com.soa.busservice.model.Status;
 import com.soa.busservice.service.BusService;
+import com.soa.busservice.service.LocationIngestionService;
+import com.soa.busservice.service.TrajectoryService;
+import com.soa.busservice.service.TrajectoryService.TrajectoryQuery;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,10 +35,17 @@ import java.util.UUID;
 @RequestMapping("/api/buses")
 @RequiredArgsConstructor
 @Slf4j
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Next-Cursor")
 public class BusController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final BusService busService;
+    private final ObjectMapper objectMapper;
+    private final TrajectoryService trajectoryService;
+    private final TrajectoryStreamWriter trajectoryStreamWriter;
+    private final LocationIngestionService locationIngestionService;
 
     @PostMapping
     public ResponseEntity<BusResponse> createBus(@Valid @RequestBody BusRequest request) {
@@ -31,11 +54,36 @@ public class BusController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Without 'cursor' or 'limit' the whole list is returned as before. With either, one page
+     * is returned and the cursor for the next page, if any, is sent in the X-Next-Cursor header.
+     */
     @GetMapping
-    public ResponseEntity<List<BusResponse>> getAllBuses() {
+    public ResponseEntity<List<BusResponse>> getAllBuses(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         log.info("REST request to get all buses");
-        List<BusResponse> buses = busService.getAllBuses();
-        return ResponseEntity.ok(buses);
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(busService.getAllBuses());
+        }
+        return toPageResponse(busService.getAllBuses(cursor, limit != null ? limit : DEFAULT_PAGE_SIZE));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBuses() {
+        log.info("REST request to export all buses");
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            busService.exportBuses(bus -> {
+                objectMapper.writeValue(generator, bus);
+                generator.writeRaw('\n');
+            });
+            generator.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -53,17 +101,49 @@ public class BusController {
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<BusResponse>> getBusesByStatus(@PathVariable Status status) {
+    public ResponseEntity<List<BusResponse>> getBusesByStatus(
+            @PathVariable Status status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         log.info("REST request to get buses by status: {}", status);
-        List<BusResponse> buses = busService.getBusesByStatus(status);
-        return ResponseEntity.ok(buses);
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(busService.getBusesByStatus(status));
+        }
+        return toPageResponse(busService.getBusesByStatus(status, cursor, limit != null ? limit : DEFAULT_PAGE_SIZE));
     }
 
     @GetMapping("/line/{lineCode}")
-    public ResponseEntity<List<BusResponse>> getBusesByLineCode(@PathVariable String lineCode) {
+    public ResponseEntity<List<BusResponse>> getBusesByLineCode(
+            @PathVariable String lineCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         log.info("REST request to get buses by line code: {}", lineCode);
-        List<BusResponse> buses = busService.getBusesByLineCode(lineCode);
-        return ResponseEntity.ok(buses);
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(busService.getBusesByLineCode(lineCode));
+        }
+        return toPageResponse(busService.getBusesByLineCode(lineCode, cursor, limit != null ? limit : DEFAULT_PAGE_SIZE));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<FleetStatsResponse> getFleetStats() {
+        log.info("REST request to get fleet statistics");
+        return ResponseEntity.ok(busService.getFleetStats());
+    }
+
+    @GetMapping("/near")
+    public ResponseEntity<List<NearbyBusResponse>> getNearestBuses(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "500") double radius,
+            @RequestParam(defaultValue = "10") int limit) {
+        log.info("REST request to get buses near ({}, {})", lat, lon);
+        return ResponseEntity.ok(busService.findNearestBuses(lat, lon, radius, limit));
+    }
+
+    @GetMapping("/within")
+    public ResponseEntity<List<BusResponse>> getBusesWithin(@RequestParam String bbox) {
+        log.info("REST request to get buses within bbox: {}", bbox);
+        return ResponseEntity.ok(busService.findBusesWithin(bbox));
     }
 
     @PutMapping("/{id}")
@@ -84,6 +164,17 @@ public class BusController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Bulk GPS ingestion for vehicle gateways: fixes for many buses, each with its device timestamp.
+     * Fixes are queued and written asynchronously, hence 202; rejected fixes are listed by request index.
+     */
+    @PostMapping("/locations:batch")
+    public ResponseEntity<LocationBatchResponse> ingestLocations(@RequestBody List<LocationFix> fixes) {
+        log.debug("REST request to ingest {} GPS fixes", fixes.size());
+        LocationBatchResponse response = locationIngestionService.submitBatch(fixes);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBus(@PathVariable UUID id) {
         log.info("REST request to delete bus ID: {}", id);
@@ -91,28 +182,37 @@ public class BusController {
         return ResponseEntity.noContent().build();
     }
 
-    @ExceptionHandler(IllegalArgumentException.class)
-    public ResponseEntity<ErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
-        log.error("Bad request: {}", ex.getMessage());
-        ErrorResponse error = new ErrorResponse(
-                HttpStatus.BAD_REQUEST.value(),
-                ex.getMessage(),
-                System.currentTimeMillis()
-        );
-        return ResponseEntity.badRequest().body(error);
+    @GetMapping("/{id}/trajectory")
+    public ResponseEntity<ResponseBodyEmitter> getTrajectory(
+            @PathVariable UUID id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer interval,
+            @RequestParam(required = false) Double speed) {
+        log.info("REST request to stream trajectory for bus ID: {}", id);
+        TrajectoryQuery query = trajectoryService.busTrajectory(id, from, to, interval, speed);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(trajectoryStreamWriter.ndjson(query));
     }
 
-    @ExceptionHandler(Exception.class)
-    public ResponseEntity<ErrorResponse> handleException(Exception ex) {
-        log.error("Internal server error", ex);
-        ErrorResponse error = new ErrorResponse(
-                HttpStatus.INTERNAL_SERVER_ERROR.value(),
-                "An unexpected error occurred",
-                System.currentTimeMillis()
-        );
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+    @GetMapping(value = "/{id}/trajectory", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getTrajectoryEvents(
+            @PathVariable UUID id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer interval,
+            @RequestParam(required = false) Double speed) {
+        log.info("REST request to stream trajectory events for bus ID: {}", id);
+        TrajectoryQuery query = trajectoryService.busTrajectory(id, from, to, interval, speed);
+        return trajectoryStreamWriter.sse(query);
     }
 
-    // Error response DTO
-    private record ErrorResponse(int status, String message, long timestamp) {}
+    private ResponseEntity<List<BusResponse>> toPageResponse(BusPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
 }
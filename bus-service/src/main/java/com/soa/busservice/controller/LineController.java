@@ -0,0 +1,73 @@
+package com.soa.busservice.controller;
+
+import com.soa.busservice.dto.HeadwayResponse;
+import com.soa.busservice.dto.StopResponse;
+import com.soa.busservice.service.HeadwayService;
+import com.soa.busservice.service.StopService;
+import com.soa.busservice.service.TrajectoryService;
+import com.soa.busservice.service.TrajectoryService.TrajectoryQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/lines")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class LineController {
+
+    private final TrajectoryService trajectoryService;
+    private final TrajectoryStreamWriter trajectoryStreamWriter;
+    private final StopService stopService;
+    private final HeadwayService headwayService;
+
+    @GetMapping("/{lineCode}/stops")
+    public ResponseEntity<List<StopResponse>> getLineStops(@PathVariable String lineCode) {
+        log.info("REST request to get stops for line: {}", lineCode);
+        return ResponseEntity.ok(stopService.getLineStops(lineCode));
+    }
+
+    /**
+     * Active buses on the line from front to back, each with the gap to the bus ahead.
+     */
+    @GetMapping("/{lineCode}/headways")
+    public ResponseEntity<List<HeadwayResponse>> getLineHeadways(@PathVariable String lineCode) {
+        log.info("REST request to get headways for line: {}", lineCode);
+        return ResponseEntity.ok(headwayService.getLineHeadways(lineCode));
+    }
+
+    @GetMapping("/{lineCode}/replay")
+    public ResponseEntity<ResponseBodyEmitter> replayLine(
+            @PathVariable String lineCode,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer interval,
+            @RequestParam(required = false) Double speed) {
+        log.info("REST request to replay line: {}", lineCode);
+        TrajectoryQuery query = trajectoryService.lineReplay(lineCode, from, to, interval, speed);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(trajectoryStreamWriter.ndjson(query));
+    }
+
+    @GetMapping(value = "/{lineCode}/replay", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter replayLineEvents(
+            @PathVariable String lineCode,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer interval,
+            @RequestParam(required = false) Double speed) {
+        log.info("REST request to replay line events: {}", lineCode);
+        TrajectoryQuery query = trajectoryService.lineReplay(lineCode, from, to, interval, speed);
+        return trajectoryStreamWriter.sse(query);
+    }
+}
@@ -0,0 +1,28 @@
+package com.soa.busservice.controller;
+
+import com.soa.busservice.dto.StopArrivalResponse;
+import com.soa.busservice.service.StopService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stops")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class StopController {
+
+    private final StopService stopService;
+
+    @GetMapping("/{id}/arrivals")
+    public ResponseEntity<List<StopArrivalResponse>> getArrivals(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "5") int limit) {
+        log.info("REST request to get arrivals for stop: {}", id);
+        return ResponseEntity.ok(stopService.getArrivals(id, limit));
+    }
+}
@@ -0,0 +1,120 @@
+package com.soa.busservice.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soa.busservice.exception.StreamCapacityExceededException;
+import com.soa.busservice.service.TrajectoryService.TrajectoryQuery;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes trajectory queries as NDJSON or Server-Sent Events.
+ * Streams run on their own bounded pool rather than the shared MVC/@Async executor, so long paced
+ * replays cannot starve other async work; once every slot is busy new streams are refused with 503.
+ */
+@Component
+@Slf4j
+public class TrajectoryStreamWriter {
+
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final int FLUSH_EVERY = 200;
+
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+
+    @FunctionalInterface
+    private interface StreamTask {
+        void run() throws IOException;
+    }
+
+    public TrajectoryStreamWriter(ObjectMapper objectMapper,
+                                  @Value("${trajectory.streams.max-concurrent:8}") int maxConcurrent) {
+        this.objectMapper = objectMapper;
+        AtomicInteger threads = new AtomicInteger();
+        // No queue: a stream either gets a thread right away or is rejected
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "trajectory-stream-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public ResponseBodyEmitter ndjson(TrajectoryQuery query) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(STREAM_TIMEOUT_MS);
+        start(emitter, () -> {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer);
+            generator.setRootValueSeparator(null);
+            int[] pending = {0};
+            query.forEach(point -> {
+                objectMapper.writeValue(generator, point);
+                generator.writeRaw('\n');
+                // Paced replays must reach the client point by point
+                if (query.isPaced() || ++pending[0] == FLUSH_EVERY) {
+                    send(emitter, generator, buffer);
+                    pending[0] = 0;
+                }
+            });
+            send(emitter, generator, buffer);
+        });
+        return emitter;
+    }
+
+    public SseEmitter sse(TrajectoryQuery query) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        start(emitter, () -> {
+            query.forEach(point -> emitter.send(SseEmitter.event().name("position").data(point)));
+            emitter.send(SseEmitter.event().name("end").data(""));
+        });
+        return emitter;
+    }
+
+    private void start(ResponseBodyEmitter emitter, StreamTask task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                    emitter.complete();
+                } catch (IOException e) {
+                    log.debug("Trajectory stream closed by client: {}", e.getMessage());
+                    emitter.completeWithError(e);
+                } catch (Exception e) {
+                    log.error("Trajectory stream failed", e);
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new StreamCapacityExceededException(
+                    "All " + executor.getMaximumPoolSize() + " trajectory streams are in use, retry later");
+        }
+    }
+
+    private static void send(ResponseBodyEmitter emitter, JsonGenerator generator, ByteArrayOutputStream buffer)
+            throws IOException {
+        generator.flush();
+        if (buffer.size() > 0) {
+            emitter.send(buffer.toByteArray(), MediaType.APPLICATION_NDJSON);
+            buffer.reset();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
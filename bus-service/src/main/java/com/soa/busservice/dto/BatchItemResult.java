@@ -0,0 +1,30 @@
+package com.soa.busservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+    public enum Outcome {
+        CREATED,
+        UPDATED,
+        INVALID,
+        CONFLICT,
+        NOT_FOUND
+    }
+
+    private int index; // position of the item in the request
+    private Outcome outcome;
+    private UUID id;
+    private String busNumber;
+    private String message;
+
+    public boolean isSuccess() {
+        return outcome == Outcome.CREATED || outcome == Outcome.UPDATED;
+    }
+}
@@ -0,0 +1,21 @@
+package com.soa.busservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResponse {
+    private int succeeded;
+    private int failed;
+    private List<BatchItemResult> results;
+
+    public static BatchResponse of(List<BatchItemResult> results) {
+        int succeeded = (int) results.stream().filter(BatchItemResult::isSuccess).count();
+        return new BatchResponse(succeeded, results.size() - succeeded, results);
+    }
+}
@@ -0,0 +1,15 @@
+package com.soa.busservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusPage {
+    private List<BusResponse> items;
+    private String nextCursor; // null on the last page
+}
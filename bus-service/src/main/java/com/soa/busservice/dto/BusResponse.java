@@ -1,7 +1,6 @@
 package com.soa.busservice.dto;
 
 import com.soa.busservice.model.Status;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -10,7 +9,6 @@ import java.util.UUID;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class BusResponse {
     private UUID id;
     private String busNumber;
@@ -24,4 +22,23 @@ public class BusResponse {
     private LocalDateTime lastLocationUpdate;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Set by the fleet state when the bus's route geometry is known; not persisted
+    private RouteMatch routeMatch;
+
+    public BusResponse(UUID id, String busNumber, String lineCode, Integer capacity, Status status,
+                       Double latitude, Double longitude, Double speed, Double heading,
+                       LocalDateTime lastLocationUpdate, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.busNumber = busNumber;
+        this.lineCode = lineCode;
+        this.capacity = capacity;
+        this.status = status;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.speed = speed;
+        this.heading = heading;
+        this.lastLocationUpdate = lastLocationUpdate;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
 }
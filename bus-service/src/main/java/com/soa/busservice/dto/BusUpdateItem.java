@@ -0,0 +1,16 @@
+package com.soa.busservice.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class BusUpdateItem extends BusRequest {
+    @NotNull(message = "Bus ID is required")
+    private UUID id;
+}
@@ -0,0 +1,30 @@
+package com.soa.busservice.dto;
+
+import com.soa.busservice.model.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FleetStatsResponse {
+    private long totalBuses;
+    private Map<Status, Long> busesByStatus;
+    private Map<String, LineStats> lines;
+    private long staleGps;
+    private long withoutGps;
+    private long staleAfterSeconds;
+    private LocalDateTime generatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineStats {
+        private long buses;
+        private double averageSpeed;
+    }
+}
@@ -0,0 +1,23 @@
+package com.soa.busservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeadwayResponse {
+    private UUID busId;
+    private String busNumber;
+    private Double distanceAlongRoute;
+    // Next bus ahead on the same line; null for the bus at the front
+    private UUID leaderBusId;
+    private String leaderBusNumber;
+    private Double gapMeters;
+    private Long headwaySeconds;
+    private boolean bunched;
+    private boolean gap;
+}
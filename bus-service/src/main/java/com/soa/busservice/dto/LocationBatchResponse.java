@@ -0,0 +1,26 @@
+package com.soa.busservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationBatchResponse {
+    private int accepted;
+    private int rejected;
+    private List<RejectedFix> rejections;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RejectedFix {
+        private int index; // position of the fix in the request
+        private UUID busId;
+        private String reason;
+    }
+}
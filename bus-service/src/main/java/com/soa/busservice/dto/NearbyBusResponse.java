@@ -0,0 +1,13 @@
+package com.soa.busservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyBusResponse {
+    private BusResponse bus;
+    private Double distanceMeters;
+}
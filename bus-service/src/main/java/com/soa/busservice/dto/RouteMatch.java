@@ -0,0 +1,13 @@
+package com.soa.busservice.dto;
+
+/**
+ * A GPS fix snapped onto the bus's route polyline.
+ *
+ * @param distanceAlongRoute meters from the start of the route to the snapped point
+ * @param latitude           snapped latitude
+ * @param longitude          snapped longitude
+ * @param bearing            direction of travel of the matched road segment, degrees clockwise from north
+ * @param offsetMeters       distance between the raw fix and the snapped point
+ */
+public record RouteMatch(double distanceAlongRoute, double latitude, double longitude,
+                         double bearing, double offsetMeters) {}
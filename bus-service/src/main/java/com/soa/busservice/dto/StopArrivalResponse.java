@@ -0,0 +1,21 @@
+package com.soa.busservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StopArrivalResponse {
+    private String stopId;
+    private UUID busId;
+    private String busNumber;
+    private String lineCode;
+    private LocalDateTime expectedAt;
+    private Long secondsAway;
+    private Double distanceMeters;
+}
@@ -0,0 +1,18 @@
+package com.soa.busservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StopResponse {
+    private String stopId; // the stop's id in trajet-service
+    private String name;
+    private String lineCode;
+    private Integer sequence;
+    private Double latitude;
+    private Double longitude;
+    private Double distanceAlongRoute;
+}
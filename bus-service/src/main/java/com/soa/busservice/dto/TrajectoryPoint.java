@@ -0,0 +1,23 @@
+package com.soa.busservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One historized position, as streamed by the trajectory and replay endpoints.
+ * Built directly by JPQL constructor projection so rows are never managed entities.
+ * The history row id is only the keyset tie-breaker between chunks and is not serialized.
+ */
+public record TrajectoryPoint(
+        @JsonIgnore Long id,
+        UUID busId,
+        String busNumber,
+        String lineCode,
+        Double latitude,
+        Double longitude,
+        Double speed,
+        Double heading,
+        LocalDateTime recordedAt
+) {}
@@ -0,0 +1,36 @@
+package com.soa.busservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Edge-triggered alert: one event with active=true when a condition starts and one with
+ * active=false when it ends, never one per location update.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusAlertEvent implements Serializable {
+
+    public enum Type {
+        STATIONARY,
+        OFF_ROUTE,
+        GPS_STALE,
+        BUNCHING,
+        HEADWAY_GAP
+    }
+
+    private String busId;
+    private String busNumber;
+    private String lineCode;
+    private Type type;
+    private boolean active;
+    private Double latitude;
+    private Double longitude;
+    private String message;
+    private LocalDateTime timestamp;
+}
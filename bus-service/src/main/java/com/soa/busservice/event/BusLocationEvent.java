@@ -19,4 +19,6 @@ public class BusLocationEvent implements Serializable {
     private Double speed;
     private Double heading;
     private LocalDateTime timestamp;
+    // Epoch millis at which the fix entered bus-service; the start of the end-to-end latency measurement
+    private Long originTimestamp;
 }
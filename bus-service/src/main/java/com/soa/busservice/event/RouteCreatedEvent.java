@@ -3,11 +3,20 @@ package com.soa.busservice.event;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 public class RouteCreatedEvent {
     private Long routeId;
     private String routeName;
     private String direction;
-    private String geometry;
-}
\ No newline at end of file
+    private String geometry; // GeoJSON, only in events published before encodedGeometry
+    private String encodedGeometry; // see EncodedPolyline
+    private List<StopPoint> stops; // in route order; absent from events published before stops were added
+
+    /**
+     * A stop served by the route, identified by its id in trajet-service.
+     */
+    public record StopPoint(Long stopId, int sequence, String name, double latitude, double longitude) {}
+}
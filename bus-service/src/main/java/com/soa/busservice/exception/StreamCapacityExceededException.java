@@ -0,0 +1,11 @@
+package com.soa.busservice.exception;
+
+/**
+ * Thrown when every trajectory stream slot is taken; answered with 503 so clients retry later.
+ */
+public class StreamCapacityExceededException extends RuntimeException {
+
+    public StreamCapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,58 @@
+package com.soa.busservice.gateway;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.UUID;
+
+/**
+ * Layout of the fixed-size binary fix sent by trackers (big-endian, 40 bytes):
+ * <pre>
+ *  0  device id (bus UUID)     16 bytes
+ * 16  sequence number           int
+ * 20  device time, epoch millis long
+ * 28  latitude  * 1e7           int
+ * 32  longitude * 1e7           int
+ * 36  speed, 0.01 km/h          unsigned short
+ * 38  heading, 0.01 degrees     unsigned short
+ * </pre>
+ * Fields are read at absolute offsets straight from the buffer, so decoding allocates nothing per field.
+ */
+public final class GpsFrame {
+
+    public static final int LENGTH = 40;
+
+    private static final double COORDINATE_SCALE = 1e-7;
+    private static final double SPEED_SCALE = 0.01;
+    private static final double HEADING_SCALE = 0.01;
+
+    private GpsFrame() {
+    }
+
+    public static UUID deviceId(ByteBuf frame, int offset) {
+        return new UUID(frame.getLong(offset), frame.getLong(offset + 8));
+    }
+
+    public static int sequence(ByteBuf frame, int offset) {
+        return frame.getInt(offset + 16);
+    }
+
+    public static long epochMillis(ByteBuf frame, int offset) {
+        return frame.getLong(offset + 20);
+    }
+
+    public static double latitude(ByteBuf frame, int offset) {
+        return frame.getInt(offset + 28) * COORDINATE_SCALE;
+    }
+
+    public static double longitude(ByteBuf frame, int offset) {
+        return frame.getInt(offset + 32) * COORDINATE_SCALE;
+    }
+
+    public static double speedKmH(ByteBuf frame, int offset) {
+        return frame.getUnsignedShort(offset + 36) * SPEED_SCALE;
+    }
+
+    public static double heading(ByteBuf frame, int offset) {
+        return frame.getUnsignedShort(offset + 38) * HEADING_SCALE;
+    }
+}
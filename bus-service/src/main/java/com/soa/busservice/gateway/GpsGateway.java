@@ -0,0 +1,129 @@
+package com.soa.busservice.gateway;
+
+import com.soa.busservice.service.LocationIngestionService;
+import com.soa.busservice.service.LocationIngestionService.PendingFix;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.FixedLengthFrameDecoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.tcp.TcpServer;
+import reactor.netty.udp.UdpServer;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Optional binary GPS listener for trackers that cannot afford HTTP and JSON. Accepts {@link GpsFrame}s
+ * over TCP (a stream of frames per connection) and UDP (one or more frames per datagram) and feeds them
+ * into the same ingestion pipeline as the batch endpoint. Nothing is sent back to the device.
+ */
+@Component
+@ConditionalOnProperty(name = "gps.gateway.enabled", havingValue = "true")
+@Slf4j
+public class GpsGateway {
+
+    private final LocationIngestionService ingestionService;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter malformed;
+
+    @Value("${gps.gateway.host:0.0.0.0}")
+    private String host;
+
+    @Value("${gps.gateway.tcp-port:5055}")
+    private int tcpPort;
+
+    @Value("${gps.gateway.udp-port:5056}")
+    private int udpPort;
+
+    private DisposableServer tcpServer;
+    private Connection udpServer;
+
+    public GpsGateway(LocationIngestionService ingestionService, MeterRegistry meterRegistry) {
+        this.ingestionService = ingestionService;
+        this.accepted = meterRegistry.counter("bus.gps.gateway.fixes", "result", "accepted");
+        this.rejected = meterRegistry.counter("bus.gps.gateway.fixes", "result", "rejected");
+        this.malformed = meterRegistry.counter("bus.gps.gateway.fixes", "result", "malformed");
+    }
+
+    @PostConstruct
+    void start() {
+        tcpServer = TcpServer.create()
+                .host(host)
+                .port(tcpPort)
+                .doOnConnection(connection -> connection.addHandlerLast(new FixedLengthFrameDecoder(GpsFrame.LENGTH)))
+                .handle((in, out) -> in.receive()
+                        .doOnNext(frame -> ingest(frame, frame.readerIndex()))
+                        .then())
+                .bindNow();
+
+        udpServer = UdpServer.create()
+                .host(host)
+                .port(udpPort)
+                .handle((in, out) -> in.receiveObject()
+                        .doOnNext(message -> {
+                            if (message instanceof DatagramPacket packet) {
+                                ingestDatagram(packet.content());
+                            }
+                        })
+                        .then())
+                .bindNow();
+
+        log.info("GPS gateway listening on tcp://{}:{} and udp://{}:{}", host, tcpPort, host, udpPort);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (tcpServer != null) {
+            tcpServer.disposeNow();
+        }
+        if (udpServer != null) {
+            udpServer.disposeNow();
+        }
+    }
+
+    private void ingestDatagram(ByteBuf content) {
+        int offset = content.readerIndex();
+        int end = content.writerIndex();
+        if ((end - offset) % GpsFrame.LENGTH != 0) {
+            malformed.increment();
+            return;
+        }
+        for (; offset < end; offset += GpsFrame.LENGTH) {
+            ingest(content, offset);
+        }
+    }
+
+    private void ingest(ByteBuf buffer, int offset) {
+        double latitude = GpsFrame.latitude(buffer, offset);
+        double longitude = GpsFrame.longitude(buffer, offset);
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            malformed.increment();
+            return;
+        }
+
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(GpsFrame.epochMillis(buffer, offset)), zone);
+        PendingFix fix = new PendingFix(GpsFrame.deviceId(buffer, offset), latitude, longitude,
+                GpsFrame.speedKmH(buffer, offset), GpsFrame.heading(buffer, offset), timestamp, System.currentTimeMillis());
+
+        String reason = ingestionService.offer(fix);
+        if (reason == null) {
+            accepted.increment();
+        } else {
+            rejected.increment();
+            log.trace("Rejected fix #{} from {}: {}", GpsFrame.sequence(buffer, offset), fix.busId(), reason);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.soa.busservice.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soa.busservice.event.BusLocationEvent;
+import com.soa.busservice.tracking.FleetStateStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the in-memory fleet state current with published positions,
+ * including simulator ticks that never go through the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FleetStateTracker {
+
+    private final FleetStateStore fleetState;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(topics = "bus.location.updates", groupId = "fleet-state")
+    public void trackLocation(String message) {
+        try {
+            BusLocationEvent event = objectMapper.readValue(message, BusLocationEvent.class);
+            if (event.getBusId() == null || event.getLatitude() == null || event.getLongitude() == null) {
+                return;
+            }
+            fleetState.applyLocation(event);
+        } catch (Exception e) {
+            log.error("Error tracking location update: {}", e.getMessage());
+        }
+    }
+}
@@ -1,27 +1,44 @@
 package com.soa.busservice.kafka;
 
+import com.soa.busservice.event.BusAlertEvent;
 import com.soa.busservice.event.BusLineChangeEvent;
 import com.soa.busservice.event.BusLocationEvent;
 import com.soa.busservice.event.BusStatusEvent;
+import com.soa.busservice.tracking.GpsLatencyMetrics;
+import com.soa.busservice.tracking.GpsLatencyMetrics.Stage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KafkaProducerService {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final GpsLatencyMetrics latencyMetrics;
+
+    // Epoch millis (8 bytes, big-endian) at which a location event was handed to the producer
+    public static final String PRODUCED_AT_HEADER = "x-produced-at";
 
     private static final String LOCATION_TOPIC = "bus.location.updates";
     private static final String STATUS_TOPIC = "bus.status.changes";
     private static final String LINE_CHANGE_TOPIC = "bus.line.change";
+    private static final String ALERT_TOPIC = "bus.alerts";
 
     public void publishLocationUpdate(BusLocationEvent event) {
         try {
-            kafkaTemplate.send(LOCATION_TOPIC, event.getBusId(), event);
+            long producedAt = System.currentTimeMillis();
+            ProducerRecord<String, Object> record = new ProducerRecord<>(LOCATION_TOPIC, event.getBusId(), event);
+            record.headers().add(PRODUCED_AT_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(producedAt).array());
+            kafkaTemplate.send(record);
+            if (event.getOriginTimestamp() != null) {
+                latencyMetrics.record(Stage.INGEST, event.getBusNumber(), event.getOriginTimestamp(), producedAt);
+            }
             log.info("Published location update for bus: {} to topic: {}", event.getBusNumber(), LOCATION_TOPIC);
         } catch (Exception e) {
             log.error("Failed to publish location update for bus: {}", event.getBusNumber(), e);
@@ -46,4 +63,14 @@ public class KafkaProducerService {
             log.error("Failed to publish line change event for bus: {}", event.getBusId(), e);
         }
     }
+
+    public void publishAlert(BusAlertEvent event) {
+        try {
+            kafkaTemplate.send(ALERT_TOPIC, event.getBusId(), event);
+            log.info("Published {} alert ({}) for bus: {} to topic: {}",
+                    event.getType(), event.isActive() ? "raised" : "cleared", event.getBusNumber(), ALERT_TOPIC);
+        } catch (Exception e) {
+            log.error("Failed to publish alert for bus: {}", event.getBusNumber(), e);
+        }
+    }
 }
@@ -2,12 +2,17 @@ package com.soa.busservice.kafka;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.soa.busservice.config.GpsWebSocketHandler;
+import com.soa.busservice.event.BusAlertEvent;
 import com.soa.busservice.event.BusLocationEvent;
+import com.soa.busservice.tracking.GpsLatencyMetrics;
+import com.soa.busservice.tracking.GpsLatencyMetrics.Stage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,9 +23,12 @@ public class KafkaToWebSocketBridge {
 
     private final GpsWebSocketHandler webSocketHandler;
     private final ObjectMapper objectMapper;
+    private final GpsLatencyMetrics latencyMetrics;
 
     @KafkaListener(topics = "bus.location.updates", groupId = "ws-bridge")
-    public void bridgeLocationToWebSocket(String message) { // Accept String
+    public void bridgeLocationToWebSocket(String message, // Accept String
+            @Header(name = KafkaProducerService.PRODUCED_AT_HEADER, required = false) byte[] producedAtHeader) {
+        long consumedAt = System.currentTimeMillis();
         try {
             // 1. Manually parse the incoming JSON String
             BusLocationEvent event = objectMapper.readValue(message, BusLocationEvent.class);
@@ -34,6 +42,7 @@ public class KafkaToWebSocketBridge {
             gpsData.put("longitude", event.getLongitude());
             gpsData.put("speed", event.getSpeed());
             gpsData.put("heading", event.getHeading());
+            gpsData.put("originTimestamp", event.getOriginTimestamp());
 
             Map<String, Object> wsMessage = new HashMap<>();
             wsMessage.put("type", "GPS_UPDATE");
@@ -41,9 +50,36 @@ public class KafkaToWebSocketBridge {
 
             // 3. Broadcast
             webSocketHandler.broadcast(objectMapper.writeValueAsString(wsMessage));
+            recordLatency(event, producedAtHeader, consumedAt, System.currentTimeMillis());
             
         } catch (Exception e) {
             log.error("Error bridging location update: {}", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @KafkaListener(topics = "bus.alerts", groupId = "ws-bridge")
+    public void bridgeAlertToWebSocket(String message) {
+        try {
+            BusAlertEvent event = objectMapper.readValue(message, BusAlertEvent.class);
+
+            Map<String, Object> wsMessage = new HashMap<>();
+            wsMessage.put("type", "BUS_ALERT");
+            wsMessage.put("payload", event);
+
+            webSocketHandler.broadcast(objectMapper.writeValueAsString(wsMessage));
+        } catch (Exception e) {
+            log.error("Error bridging alert: {}", e.getMessage());
+        }
+    }
+
+    private void recordLatency(BusLocationEvent event, byte[] producedAtHeader, long consumedAt, long sentAt) {
+        String busNumber = event.getBusNumber();
+        if (producedAtHeader != null && producedAtHeader.length == Long.BYTES) {
+            latencyMetrics.record(Stage.KAFKA, busNumber, ByteBuffer.wrap(producedAtHeader).getLong(), consumedAt);
+        }
+        latencyMetrics.record(Stage.WEBSOCKET, busNumber, consumedAt, sentAt);
+        if (event.getOriginTimestamp() != null) {
+            latencyMetrics.record(Stage.TOTAL, busNumber, event.getOriginTimestamp(), sentAt);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.soa.busservice.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soa.busservice.event.BusLocationEvent;
+import com.soa.busservice.model.BusLocationHistory;
+import com.soa.busservice.repository.BusLocationHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Historizes every published position (REST updates and simulator ticks alike)
+ * so trajectories can be queried and replayed later.
+ * Each Kafka poll is written with a single saveAll, which the pooled SEQUENCE ids and
+ * hibernate.jdbc.batch_size turn into batched inserts in one transaction. Rows older than
+ * {@code history.retention-days} are purged hourly.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LocationHistoryRecorder {
+
+    private final BusLocationHistoryRepository historyRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${history.retention-days:30}")
+    private int retentionDays;
+
+    @KafkaListener(topics = "bus.location.updates", groupId = "location-history", batch = "true")
+    public void record(List<String> messages) {
+        List<BusLocationHistory> entries = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            try {
+                BusLocationEvent event = objectMapper.readValue(message, BusLocationEvent.class);
+                if (event.getLatitude() == null || event.getLongitude() == null) {
+                    continue;
+                }
+                entries.add(toEntry(event));
+            } catch (Exception e) {
+                log.error("Error reading location update for history: {}", e.getMessage());
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        try {
+            historyRepository.saveAll(entries);
+        } catch (Exception e) {
+            log.error("Error historizing {} location updates: {}", entries.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedRate = 3_600_000, initialDelay = 60_000)
+    @Transactional
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int deleted = historyRepository.deleteRecordedBefore(cutoff);
+        if (deleted > 0) {
+            log.info("Purged {} location history rows older than {}", deleted, cutoff);
+        }
+    }
+
+    private BusLocationHistory toEntry(BusLocationEvent event) {
+        BusLocationHistory entry = new BusLocationHistory();
+        entry.setBusId(UUID.fromString(event.getBusId()));
+        entry.setBusNumber(event.getBusNumber());
+        entry.setLineCode(event.getLineCode());
+        entry.setLatitude(event.getLatitude());
+        entry.setLongitude(event.getLongitude());
+        entry.setSpeed(event.getSpeed());
+        entry.setHeading(event.getHeading());
+        entry.setRecordedAt(event.getTimestamp() != null ? event.getTimestamp() : LocalDateTime.now());
+        return entry;
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -15,8 +16,11 @@ import java.util.UUID;
 @Entity
 @Table(name = "buses")
 public class Bus implements Serializable {
+    // Ids are generated in the application (time-ordered for index locality), so inserts need
+    // no round trip for the key and Hibernate can group them into JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue
+    @UuidGenerator(style = UuidGenerator.Style.TIME)
     private UUID id;
 
     @Column(nullable = false, unique = true)
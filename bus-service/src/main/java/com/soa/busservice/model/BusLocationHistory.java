@@ -0,0 +1,44 @@
+package com.soa.busservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "bus_location_history", indexes = {
+        @Index(name = "idx_history_bus_time", columnList = "busId,recordedAt"),
+        @Index(name = "idx_history_line_time", columnList = "lineCode,recordedAt"),
+        @Index(name = "idx_history_time", columnList = "recordedAt") // retention purge
+})
+public class BusLocationHistory {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    @Column(nullable = false)
+    private UUID busId;
+
+    private String busNumber;
+
+    @Column(nullable = false)
+    private String lineCode;
+
+    @Column(nullable = false)
+    private Double latitude;
+
+    @Column(nullable = false)
+    private Double longitude;
+
+    private Double speed;
+    private Double heading;
+
+    @Column(nullable = false)
+    private LocalDateTime recordedAt;
+}
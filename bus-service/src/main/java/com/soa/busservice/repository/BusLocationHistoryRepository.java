@@ -0,0 +1,53 @@
+package com.soa.busservice.repository;
+
+import com.soa.busservice.dto.TrajectoryPoint;
+import com.soa.busservice.model.BusLocationHistory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface BusLocationHistoryRepository extends JpaRepository<BusLocationHistory, Long> {
+
+    // Keyset chunks ordered by (recordedAt, id): each call reads the rows strictly after the last
+    // one returned, so a long range is read in short queries instead of one long-lived cursor.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select new com.soa.busservice.dto.TrajectoryPoint(h.id, h.busId, h.busNumber, h.lineCode, " +
+            "h.latitude, h.longitude, h.speed, h.heading, h.recordedAt) " +
+            "from BusLocationHistory h " +
+            "where h.busId = :busId and h.recordedAt < :to " +
+            "and (h.recordedAt > :afterTime or (h.recordedAt = :afterTime and h.id > :afterId)) " +
+            "order by h.recordedAt, h.id")
+    List<TrajectoryPoint> findChunkByBus(@Param("busId") UUID busId,
+                                         @Param("afterTime") LocalDateTime afterTime,
+                                         @Param("afterId") long afterId,
+                                         @Param("to") LocalDateTime to,
+                                         Pageable chunk);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("select new com.soa.busservice.dto.TrajectoryPoint(h.id, h.busId, h.busNumber, h.lineCode, " +
+            "h.latitude, h.longitude, h.speed, h.heading, h.recordedAt) " +
+            "from BusLocationHistory h " +
+            "where h.lineCode = :lineCode and h.recordedAt < :to " +
+            "and (h.recordedAt > :afterTime or (h.recordedAt = :afterTime and h.id > :afterId)) " +
+            "order by h.recordedAt, h.id")
+    List<TrajectoryPoint> findChunkByLine(@Param("lineCode") String lineCode,
+                                          @Param("afterTime") LocalDateTime afterTime,
+                                          @Param("afterId") long afterId,
+                                          @Param("to") LocalDateTime to,
+                                          Pageable chunk);
+
+    @Modifying
+    @Query("delete from BusLocationHistory h where h.recordedAt < :cutoff")
+    int deleteRecordedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
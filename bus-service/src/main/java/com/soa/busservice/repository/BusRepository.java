@@ -1,13 +1,22 @@
 package com.soa.busservice.repository;
 
+import com.soa.busservice.dto.BusResponse;
 import com.soa.busservice.model.Bus;
 import com.soa.busservice.model.Status;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface BusRepository extends JpaRepository<Bus, UUID> {
@@ -15,4 +24,18 @@ public interface BusRepository extends JpaRepository<Bus, UUID> {
     List<Bus> findByStatus(Status status);
     List<Bus> findByLineCode(String lineCode);
     boolean existsByBusNumber(String busNumber);
+    List<Bus> findByBusNumberIn(Collection<String> busNumbers);
+
+    @Query("select b.busNumber from Bus b where b.busNumber in :busNumbers")
+    Set<String> findExistingBusNumbers(@Param("busNumbers") Collection<String> busNumbers);
+
+    // Consume inside a read-only transaction; the fetch size keeps PostgreSQL on a server-side cursor
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.soa.busservice.dto.BusResponse(b.id, b.busNumber, b.lineCode, b.capacity, b.status, " +
+            "b.latitude, b.longitude, b.speed, b.heading, b.lastLocationUpdate, b.createdAt, b.updatedAt) " +
+            "from Bus b order by b.busNumber")
+    Stream<BusResponse> streamAllOrderByBusNumber();
 }
@@ -1,8 +1,15 @@
 package com.soa.busservice.service;
 
+import com.soa.busservice.dto.BatchItemResult;
+import com.soa.busservice.dto.BatchItemResult.Outcome;
+import com.soa.busservice.dto.BatchResponse;
+import com.soa.busservice.dto.BusPage;
 import com.soa.busservice.dto.BusRequest;
 import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.dto.BusUpdateItem;
+import com.soa.busservice.dto.FleetStatsResponse;
 import com.soa.busservice.dto.LocationUpdateRequest;
+import com.soa.busservice.dto.NearbyBusResponse;
 import com.soa.busservice.event.BusLineChangeEvent;
 import com.soa.busservice.event.BusLocationEvent;
 import com.soa.busservice.event.BusStatusEvent;
@@ -10,14 +17,33 @@ import com.soa.busservice.kafka.KafkaProducerService;
 import com.soa.busservice.model.Bus;
 import com.soa.busservice.model.Status;
 import com.soa.busservice.repository.BusRepository;
+import com.soa.busservice.tracking.FleetStateStore;
+import com.soa.busservice.tracking.FleetStatistics;
+import com.soa.busservice.tracking.SpatialIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -28,6 +54,26 @@ public class BusService {
 
     private final BusRepository busRepository;
     private final KafkaProducerService kafkaProducerService;
+    private final FleetStateStore fleetState;
+    private final SpatialIndex spatialIndex;
+    private final Validator validator;
+    private final FleetStatistics fleetStatistics;
+    private final LocationIngestionService locationIngestionService;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    @FunctionalInterface
+    public interface BusSink {
+        void accept(BusResponse bus) throws IOException;
+    }
+
+    @PostConstruct
+    public void loadFleetState() {
+        fleetState.loadAll(busRepository.findAll().stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList()));
+    }
 
     @Transactional
     public BusResponse createBus(BusRequest request) {
@@ -54,15 +100,14 @@ public class BusService {
         Bus savedBus = busRepository.save(bus);
         log.info("Bus created successfully with ID: {}", savedBus.getId());
         
-        return mapToResponse(savedBus);
+        BusResponse response = mapToResponse(savedBus);
+        afterCommit(() -> fleetState.put(response));
+        return response;
     }
 
-    @Transactional(readOnly = true)
     public List<BusResponse> getAllBuses() {
         log.info("Fetching all buses");
-        return busRepository.findAll().stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return fleetState.getAll();
     }
 
     @Transactional(readOnly = true)
@@ -81,20 +126,149 @@ public class BusService {
         return mapToResponse(bus);
     }
 
-    @Transactional(readOnly = true)
     public List<BusResponse> getBusesByStatus(Status status) {
         log.info("Fetching buses with status: {}", status);
-        return busRepository.findByStatus(status).stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return fleetState.getByStatus(status);
     }
 
-    @Transactional(readOnly = true)
     public List<BusResponse> getBusesByLineCode(String lineCode) {
         log.info("Fetching buses for line: {}", lineCode);
-        return busRepository.findByLineCode(lineCode).stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return fleetState.getByLine(lineCode);
+    }
+
+    public FleetStatsResponse getFleetStats() {
+        Map<Status, Long> byStatus = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            byStatus.put(status, fleetStatistics.getCount(status));
+        }
+        Map<String, FleetStatsResponse.LineStats> lines = new TreeMap<>();
+        fleetStatistics.getLines().forEach((lineCode, stats) -> {
+            if (stats.getBuses() > 0) {
+                lines.put(lineCode, new FleetStatsResponse.LineStats(stats.getBuses(), stats.getAverageSpeed()));
+            }
+        });
+        return new FleetStatsResponse(
+                fleetStatistics.getTotal(),
+                byStatus,
+                lines,
+                fleetStatistics.getStaleCount(),
+                fleetStatistics.getWithoutFixCount(),
+                fleetStatistics.getStaleAfterSeconds(),
+                LocalDateTime.now()
+        );
+    }
+
+    public BusPage getAllBuses(String cursor, int limit) {
+        log.info("Fetching page of buses after cursor: {}", cursor);
+        return toPage(fleetState.pageAll(decodeCursor(cursor), checkPageSize(limit)));
+    }
+
+    public BusPage getBusesByStatus(Status status, String cursor, int limit) {
+        log.info("Fetching page of buses with status {} after cursor: {}", status, cursor);
+        return toPage(fleetState.pageByStatus(status, decodeCursor(cursor), checkPageSize(limit)));
+    }
+
+    public BusPage getBusesByLineCode(String lineCode, String cursor, int limit) {
+        log.info("Fetching page of buses for line {} after cursor: {}", lineCode, cursor);
+        return toPage(fleetState.pageByLine(lineCode, decodeCursor(cursor), checkPageSize(limit)));
+    }
+
+    /**
+     * Pushes every bus, ordered by bus number, straight from a database cursor.
+     * Rows are DTO projections, so nothing accumulates in the persistence context.
+     */
+    @Transactional(readOnly = true)
+    public void exportBuses(BusSink sink) throws IOException {
+        log.info("Exporting all buses");
+        try (var buses = busRepository.streamAllOrderByBusNumber()) {
+            Iterator<BusResponse> iterator = buses.iterator();
+            while (iterator.hasNext()) {
+                sink.accept(iterator.next());
+            }
+        }
+    }
+
+    private BusPage toPage(FleetStateStore.Page page) {
+        String nextCursor = page.hasMore()
+                ? Base64.getUrlEncoder().withoutPadding().encodeToString(page.lastKey().getBytes(StandardCharsets.UTF_8))
+                : null;
+        return new BusPage(page.items(), nextCursor);
+    }
+
+    private String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private int checkPageSize(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    public List<NearbyBusResponse> findNearestBuses(double latitude, double longitude, double radiusMeters, int limit) {
+        log.info("Fetching up to {} buses within {} m of ({}, {})", limit, radiusMeters, latitude, longitude);
+        checkCoordinates(latitude, longitude);
+        if (radiusMeters <= 0 || radiusMeters > 50_000) {
+            throw new IllegalArgumentException("Radius must be between 0 and 50000 meters");
+        }
+        if (limit < 1 || limit > 500) {
+            throw new IllegalArgumentException("Limit must be between 1 and 500");
+        }
+
+        List<NearbyBusResponse> result = new ArrayList<>();
+        for (SpatialIndex.Hit hit : spatialIndex.nearest(latitude, longitude, radiusMeters, limit)) {
+            fleetState.get(hit.busId())
+                    .ifPresent(bus -> result.add(new NearbyBusResponse(bus, hit.distanceMeters())));
+        }
+        return result;
+    }
+
+    /**
+     * @param bbox "minLon,minLat,maxLon,maxLat" (west, south, east, north)
+     */
+    public List<BusResponse> findBusesWithin(String bbox) {
+        log.info("Fetching buses within bbox: {}", bbox);
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("bbox must be minLon,minLat,maxLon,maxLat");
+        }
+        double minLon;
+        double minLat;
+        double maxLon;
+        double maxLat;
+        try {
+            minLon = Double.parseDouble(parts[0].trim());
+            minLat = Double.parseDouble(parts[1].trim());
+            maxLon = Double.parseDouble(parts[2].trim());
+            maxLat = Double.parseDouble(parts[3].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bbox must contain four numbers");
+        }
+        checkCoordinates(minLat, minLon);
+        checkCoordinates(maxLat, maxLon);
+        if (minLat > maxLat || minLon > maxLon) {
+            throw new IllegalArgumentException("bbox minimums must not exceed maximums");
+        }
+
+        List<BusResponse> result = new ArrayList<>();
+        for (UUID id : spatialIndex.within(minLat, minLon, maxLat, maxLon)) {
+            fleetState.get(id).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    private void checkCoordinates(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Coordinates out of range: " + latitude + ", " + longitude);
+        }
     }
 
     @Transactional
@@ -131,6 +305,9 @@ public class BusService {
         Bus updatedBus = busRepository.save(bus);
         log.info("Bus updated successfully with ID: {}", updatedBus.getId());
         
+        BusResponse response = mapToResponse(updatedBus);
+        afterCommit(() -> fleetState.put(response));
+        
         // Publish status change event if status changed
         if (request.getStatus() != null && !request.getStatus().equals(oldStatus)) {
             BusStatusEvent statusEvent = new BusStatusEvent(
@@ -144,12 +321,13 @@ public class BusService {
             kafkaProducerService.publishStatusChange(statusEvent);
         }
         
-        return mapToResponse(updatedBus);
+        return response;
     }
 
     @Transactional
     public BusResponse updateBusLocation(UUID id, LocationUpdateRequest request) {
         log.info("Updating location for bus ID: {}", id);
+        long receivedAt = System.currentTimeMillis();
         
         Bus bus = busRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Bus not found with ID: " + id));
@@ -163,6 +341,10 @@ public class BusService {
         Bus updatedBus = busRepository.save(bus);
         log.info("Bus location updated successfully for ID: {}", updatedBus.getId());
         
+        BusResponse response = mapToResponse(updatedBus);
+        // The stored snapshot carries the route match; the commit runs before the caller gets the response
+        afterCommit(() -> response.setRouteMatch(fleetState.put(response).getRouteMatch()));
+        
         // Publish location update event
         BusLocationEvent locationEvent = new BusLocationEvent(
             updatedBus.getId().toString(),
@@ -172,11 +354,202 @@ public class BusService {
             updatedBus.getLongitude(),
             updatedBus.getSpeed(),
             updatedBus.getHeading(),
-            LocalDateTime.now()
+            LocalDateTime.now(),
+            receivedAt
         );
         kafkaProducerService.publishLocationUpdate(locationEvent);
         
-        return mapToResponse(updatedBus);
+        return response;
+    }
+
+    /**
+     * Creates many buses at once. Items are validated individually; bus number uniqueness is
+     * checked with a single query and the inserts are sent as JDBC batches.
+     */
+    @Transactional
+    public BatchResponse createBuses(List<BusRequest> requests) {
+        log.info("Creating {} buses in batch", requests.size());
+        checkBatchSize(requests.size());
+
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+        Map<String, Integer> candidates = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            BusRequest request = requests.get(i);
+            String violation = validate(request);
+            if (violation != null) {
+                results[i] = new BatchItemResult(i, Outcome.INVALID, null,
+                        request != null ? request.getBusNumber() : null, violation);
+            } else if (candidates.putIfAbsent(request.getBusNumber(), i) != null) {
+                results[i] = new BatchItemResult(i, Outcome.CONFLICT, null, request.getBusNumber(),
+                        "Duplicate bus number in batch");
+            }
+        }
+
+        Set<String> existing = candidates.isEmpty()
+                ? Set.of()
+                : busRepository.findExistingBusNumbers(candidates.keySet());
+
+        List<Bus> toSave = new ArrayList<>();
+        List<Integer> savedIndexes = new ArrayList<>();
+        for (int index : candidates.values()) {
+            BusRequest request = requests.get(index);
+            if (existing.contains(request.getBusNumber())) {
+                results[index] = new BatchItemResult(index, Outcome.CONFLICT, null, request.getBusNumber(),
+                        "Bus with number " + request.getBusNumber() + " already exists");
+                continue;
+            }
+
+            Bus bus = new Bus();
+            bus.setBusNumber(request.getBusNumber());
+            bus.setLineCode(request.getLineCode());
+            bus.setCapacity(request.getCapacity());
+            bus.setStatus(request.getStatus() != null ? request.getStatus() : Status.INACTIVE);
+            bus.setLatitude(request.getLatitude());
+            bus.setLongitude(request.getLongitude());
+            bus.setSpeed(request.getSpeed());
+            bus.setHeading(request.getHeading());
+            if (request.getLatitude() != null && request.getLongitude() != null) {
+                bus.setLastLocationUpdate(LocalDateTime.now());
+            }
+            toSave.add(bus);
+            savedIndexes.add(index);
+        }
+
+        List<Bus> saved = busRepository.saveAll(toSave);
+        List<BusResponse> snapshots = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            Bus bus = saved.get(i);
+            int index = savedIndexes.get(i);
+            results[index] = new BatchItemResult(index, Outcome.CREATED, bus.getId(), bus.getBusNumber(), null);
+            snapshots.add(mapToResponse(bus));
+        }
+        afterCommit(() -> snapshots.forEach(fleetState::put));
+
+        log.info("Batch create finished: {} of {} buses created", saved.size(), requests.size());
+        return BatchResponse.of(List.of(results));
+    }
+
+    /**
+     * Updates many buses at once with the same rules as {@link #updateBus}. Targets and the
+     * bus numbers they claim are loaded with one query each; updates are flushed as JDBC batches.
+     */
+    @Transactional
+    public BatchResponse updateBuses(List<BusUpdateItem> items) {
+        log.info("Updating {} buses in batch", items.size());
+        checkBatchSize(items.size());
+
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BusUpdateItem item = items.get(i);
+            String violation = validate(item);
+            if (violation != null) {
+                results[i] = new BatchItemResult(i, Outcome.INVALID, item != null ? item.getId() : null,
+                        item != null ? item.getBusNumber() : null, violation);
+            } else if (!ids.add(item.getId())) {
+                results[i] = new BatchItemResult(i, Outcome.CONFLICT, item.getId(), item.getBusNumber(),
+                        "Duplicate bus ID in batch");
+            }
+        }
+
+        Map<UUID, Bus> targets = new HashMap<>();
+        busRepository.findAllById(ids).forEach(bus -> targets.put(bus.getId(), bus));
+
+        Set<String> claimedNumbers = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (results[i] == null) {
+                claimedNumbers.add(items.get(i).getBusNumber());
+            }
+        }
+        Map<String, UUID> owners = new HashMap<>();
+        if (!claimedNumbers.isEmpty()) {
+            busRepository.findByBusNumberIn(claimedNumbers)
+                    .forEach(bus -> owners.put(bus.getBusNumber(), bus.getId()));
+        }
+
+        Set<String> assigned = new HashSet<>();
+        List<Bus> toSave = new ArrayList<>();
+        List<Integer> savedIndexes = new ArrayList<>();
+        List<BusStatusEvent> statusEvents = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            BusUpdateItem item = items.get(i);
+            Bus bus = targets.get(item.getId());
+            if (bus == null) {
+                results[i] = new BatchItemResult(i, Outcome.NOT_FOUND, item.getId(), item.getBusNumber(),
+                        "Bus not found with ID: " + item.getId());
+                continue;
+            }
+            UUID owner = owners.get(item.getBusNumber());
+            if ((owner != null && !owner.equals(bus.getId())) || !assigned.add(item.getBusNumber())) {
+                results[i] = new BatchItemResult(i, Outcome.CONFLICT, item.getId(), item.getBusNumber(),
+                        "Bus with number " + item.getBusNumber() + " already exists");
+                continue;
+            }
+
+            Status oldStatus = bus.getStatus();
+            bus.setBusNumber(item.getBusNumber());
+            bus.setLineCode(item.getLineCode());
+            bus.setCapacity(item.getCapacity());
+
+            if (item.getStatus() != null && !item.getStatus().equals(oldStatus)) {
+                bus.setStatus(item.getStatus());
+                statusEvents.add(new BusStatusEvent(
+                    bus.getId().toString(),
+                    bus.getBusNumber(),
+                    bus.getLineCode(),
+                    oldStatus,
+                    bus.getStatus(),
+                    LocalDateTime.now()
+                ));
+            }
+
+            if (item.getLatitude() != null && item.getLongitude() != null) {
+                bus.setLatitude(item.getLatitude());
+                bus.setLongitude(item.getLongitude());
+                bus.setSpeed(item.getSpeed());
+                bus.setHeading(item.getHeading());
+                bus.setLastLocationUpdate(LocalDateTime.now());
+            }
+            toSave.add(bus);
+            savedIndexes.add(i);
+        }
+
+        List<Bus> saved = busRepository.saveAll(toSave);
+        List<BusResponse> snapshots = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            Bus bus = saved.get(i);
+            int index = savedIndexes.get(i);
+            results[index] = new BatchItemResult(index, Outcome.UPDATED, bus.getId(), bus.getBusNumber(), null);
+            snapshots.add(mapToResponse(bus));
+        }
+        afterCommit(() -> snapshots.forEach(fleetState::put));
+        statusEvents.forEach(kafkaProducerService::publishStatusChange);
+
+        log.info("Batch update finished: {} of {} buses updated", saved.size(), items.size());
+        return BatchResponse.of(List.of(results));
+    }
+
+    private String validate(Object item) {
+        if (item == null) {
+            return "Item is required";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void checkBatchSize(int size) {
+        if (size == 0 || size > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch must contain between 1 and " + MAX_BATCH_SIZE + " items");
+        }
     }
 
     @Transactional
@@ -188,6 +561,10 @@ public class BusService {
         }
 
         busRepository.deleteById(id);
+        afterCommit(() -> {
+            fleetState.remove(id);
+            locationIngestionService.forget(id);
+        });
         log.info("Bus deleted successfully with ID: {}", id);
     }
 
@@ -209,10 +586,24 @@ public class BusService {
 
             // Update the bus entity
             bus.setLineCode(newLineCode);
-            busRepository.save(bus);
+            BusResponse response = mapToResponse(busRepository.save(bus));
+            afterCommit(() -> fleetState.put(response));
         }
     }
 
+    /**
+     * Inserts new buses in one JDBC batch (see hibernate.jdbc.batch_size) and publishes them to the fleet state.
+     */
+    @Transactional
+    public List<BusResponse> saveAllBuses(List<Bus> buses) {
+        log.info("Saving {} buses in batch", buses.size());
+        List<BusResponse> saved = busRepository.saveAll(buses).stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+        afterCommit(() -> saved.forEach(fleetState::put));
+        return saved;
+    }
+
     @Transactional
     public void saveBusWithRetry(Bus bus) {
         int retries = 3;
@@ -221,9 +612,11 @@ public class BusService {
                 if (bus.getId() != null && busRepository.existsById(bus.getId())) {
                     Bus existingBus = busRepository.findById(bus.getId()).orElseThrow();
                     existingBus.updateFrom(bus); // Copy fields from the new bus to the existing one
-                    busRepository.save(existingBus);
+                    BusResponse response = mapToResponse(busRepository.save(existingBus));
+                    afterCommit(() -> fleetState.put(response));
                 } else {
-                    busRepository.save(bus);
+                    BusResponse response = mapToResponse(busRepository.save(bus));
+                    afterCommit(() -> fleetState.put(response));
                 }
                 break;
             } catch (OptimisticLockingFailureException e) {
@@ -237,6 +630,24 @@ public class BusService {
         }
     }
 
+    /**
+     * Runs a fleet state change once the current transaction has committed, so a rollback never leaves
+     * the store showing buses that were not saved or missing buses that were not deleted. Runs at once
+     * outside a transaction.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private BusResponse mapToResponse(Bus bus) {
         BusResponse response = new BusResponse();
         response.setId(bus.getId());
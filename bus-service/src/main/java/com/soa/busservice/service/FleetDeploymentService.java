@@ -0,0 +1,84 @@
+package com.soa.busservice.service;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.model.Bus;
+import com.soa.busservice.model.Status;
+import com.soa.busservice.simulation.BusMovementSimulator;
+import com.soa.busservice.simulation.RouteGeometryCache;
+import com.soa.busservice.tracking.FleetStateStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Deploys simulation buses for newly created routes in bulk: bus numbers are checked against
+ * the in-memory fleet index, the whole route's buses are inserted in one JDBC batch, and
+ * they are handed to the simulator in a single call.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FleetDeploymentService {
+
+    private static final int BUSES_PER_ROUTE = 2;
+    private static final int DEFAULT_CAPACITY = 50;
+    private static final int MAX_NUMBER_ATTEMPTS = 10;
+
+    private final BusService busService;
+    private final FleetStateStore fleetState;
+    private final RouteGeometryCache routeCache;
+    private final BusMovementSimulator simulator;
+    private final Random random = new Random();
+
+    public List<BusResponse> deployForRoute(String routeName) {
+        String prefix = routeName.split(":")[0].trim();
+        List<double[]> path = routeCache.getPath(routeName);
+
+        Set<String> reserved = new HashSet<>();
+        List<Bus> buses = new ArrayList<>(BUSES_PER_ROUTE);
+        for (int i = 0; i < BUSES_PER_ROUTE; i++) {
+            String busNumber = nextFreeBusNumber(prefix, reserved);
+            if (busNumber == null) {
+                log.warn("Could not find a free bus number for route {}", routeName);
+                continue;
+            }
+            reserved.add(busNumber);
+
+            Bus bus = new Bus();
+            bus.setBusNumber(busNumber);
+            bus.setLineCode(routeName);
+            bus.setCapacity(DEFAULT_CAPACITY);
+            bus.setStatus(Status.ACTIVE);
+
+            // Set Random Start Position
+            if (path != null && !path.isEmpty()) {
+                double[] start = path.get(random.nextInt(path.size()));
+                bus.setLatitude(start[0]);
+                bus.setLongitude(start[1]);
+            }
+            buses.add(bus);
+        }
+
+        if (buses.isEmpty()) {
+            return List.of();
+        }
+
+        List<BusResponse> deployed = busService.saveAllBuses(buses);
+        simulator.addBuses(deployed.stream().map(BusResponse::getId).collect(Collectors.toList()));
+        log.info("Deployed {} buses on route {}", deployed.size(), routeName);
+        return deployed;
+    }
+
+    private String nextFreeBusNumber(String prefix, Set<String> reserved) {
+        for (int attempt = 0; attempt < MAX_NUMBER_ATTEMPTS; attempt++) {
+            String candidate = prefix + "-BUS-" + UUID.randomUUID().toString().substring(0, 4).toUpperCase();
+            if (!reserved.contains(candidate) && !fleetState.containsBusNumber(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.soa.busservice.service;
+
+import com.soa.busservice.dto.HeadwayResponse;
+import com.soa.busservice.simulation.RouteGeometryCache;
+import com.soa.busservice.tracking.HeadwayMonitor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HeadwayService {
+
+    private final RouteGeometryCache routeCache;
+    private final HeadwayMonitor headwayMonitor;
+
+    public List<HeadwayResponse> getLineHeadways(String lineCode) {
+        log.info("Fetching headways for line: {}", lineCode);
+        if (routeCache.getGeometry(lineCode) == null) {
+            throw new IllegalArgumentException("No route geometry known for line: " + lineCode);
+        }
+        return headwayMonitor.getHeadways(lineCode).stream()
+                .map(headway -> new HeadwayResponse(
+                        headway.bus().getId(),
+                        headway.bus().getBusNumber(),
+                        headway.distanceAlongRoute(),
+                        headway.leader() != null ? headway.leader().getId() : null,
+                        headway.leader() != null ? headway.leader().getBusNumber() : null,
+                        headway.gapMeters(),
+                        headway.headwaySeconds(),
+                        headway.bunched(),
+                        headway.gap()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,251 @@
+package com.soa.busservice.service;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.dto.LocationBatchResponse;
+import com.soa.busservice.dto.LocationBatchResponse.RejectedFix;
+import com.soa.busservice.dto.LocationFix;
+import com.soa.busservice.event.BusLocationEvent;
+import com.soa.busservice.kafka.KafkaProducerService;
+import com.soa.busservice.tracking.FleetStateStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests GPS fixes reported by real vehicles. Fixes are checked and ordered on the request thread,
+ * then queued; a single writer thread drains the queue, publishes every fix to Kafka and writes only
+ * the latest fix per bus to the database in one JDBC batch (write-behind). Under load the writer
+ * naturally picks up bigger chunks, so database work grows with the number of buses, not fixes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LocationIngestionService {
+
+    private static final int MAX_BATCH_SIZE = 5000;
+    private static final int QUEUE_CAPACITY = 100_000;
+    private static final int MAX_DRAIN = 2000;
+    private static final long MAX_CLOCK_SKEW_SECONDS = 60;
+
+    private static final String UPDATE_LOCATION_SQL =
+            "UPDATE buses SET latitude = ?, longitude = ?, speed = ?, heading = ?, last_location_update = ?, updated_at = ? " +
+            "WHERE id = ? AND (last_location_update IS NULL OR last_location_update < ?)";
+
+    private final FleetStateStore fleetState;
+    private final KafkaProducerService kafkaProducerService;
+    private final JdbcTemplate jdbcTemplate;
+    private final Validator validator;
+
+    private final BlockingQueue<PendingFix> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    // Device time of the newest fix accepted per bus; may be ahead of the store until the writer catches up
+    private final Map<UUID, LocalDateTime> lastAccepted = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public record PendingFix(UUID busId, double latitude, double longitude, Double speed, Double heading,
+                             LocalDateTime timestamp, long receivedAtMillis) {}
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "gps-ingestion-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        List<PendingFix> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    /**
+     * Accepts a batch of fixes for any number of buses. Each bus's fixes are applied in device time order;
+     * fixes for unknown buses, fixes not newer than the bus's last known fix and fixes from the future are rejected.
+     */
+    public LocationBatchResponse submitBatch(List<LocationFix> fixes) {
+        if (fixes.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must not exceed " + MAX_BATCH_SIZE);
+        }
+
+        long receivedAt = System.currentTimeMillis();
+        List<RejectedFix> rejections = new ArrayList<>();
+        Map<UUID, List<Integer>> byBus = new LinkedHashMap<>();
+        for (int i = 0; i < fixes.size(); i++) {
+            LocationFix fix = fixes.get(i);
+            if (fix == null) {
+                rejections.add(new RejectedFix(i, null, "Fix is empty"));
+                continue;
+            }
+            Set<ConstraintViolation<LocationFix>> violations = validator.validate(fix);
+            if (!violations.isEmpty()) {
+                String message = violations.stream().map(ConstraintViolation::getMessage).sorted()
+                        .collect(Collectors.joining("; "));
+                rejections.add(new RejectedFix(i, fix.getBusId(), message));
+                continue;
+            }
+            byBus.computeIfAbsent(fix.getBusId(), id -> new ArrayList<>()).add(i);
+        }
+
+        int accepted = 0;
+        for (Map.Entry<UUID, List<Integer>> entry : byBus.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            indexes.sort(Comparator.comparing((Integer i) -> fixes.get(i).getTimestamp()).thenComparing(i -> i));
+            for (int i : indexes) {
+                LocationFix fix = fixes.get(i);
+                String reason = offer(new PendingFix(fix.getBusId(), fix.getLatitude(), fix.getLongitude(),
+                        fix.getSpeed(), fix.getHeading(), fix.getTimestamp(), receivedAt));
+                if (reason == null) {
+                    accepted++;
+                } else {
+                    rejections.add(new RejectedFix(i, fix.getBusId(), reason));
+                }
+            }
+        }
+
+        rejections.sort(Comparator.comparingInt(RejectedFix::getIndex));
+        log.debug("Location batch: {} accepted, {} rejected", accepted, rejections.size());
+        return new LocationBatchResponse(accepted, rejections.size(), rejections);
+    }
+
+    /**
+     * Queues a single fix. Returns null when accepted, otherwise the reason it was rejected.
+     */
+    public String offer(PendingFix fix) {
+        BusResponse bus = fleetState.get(fix.busId()).orElse(null);
+        if (bus == null) {
+            return "Bus not found with ID: " + fix.busId();
+        }
+        if (fix.timestamp().isAfter(LocalDateTime.now().plusSeconds(MAX_CLOCK_SKEW_SECONDS))) {
+            return "Timestamp is in the future";
+        }
+
+        // Check and enqueue under the per-bus lock, so concurrent requests for the same bus stay in device time order
+        String[] reason = new String[1];
+        lastAccepted.compute(fix.busId(), (id, last) -> {
+            LocalDateTime known = newest(last, bus.getLastLocationUpdate());
+            if (known != null && !fix.timestamp().isAfter(known)) {
+                reason[0] = "Fix is not newer than the last known fix";
+                return last;
+            }
+            if (!queue.offer(fix)) {
+                reason[0] = "Ingestion queue is full";
+                return last;
+            }
+            return fix.timestamp();
+        });
+        return reason[0];
+    }
+
+    /**
+     * Drops what is known about a deleted bus. A fix accepted while the delete was in flight
+     * re-creates the entry; the writer drops it again when it finds the bus gone.
+     */
+    public void forget(UUID busId) {
+        lastAccepted.remove(busId);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        List<PendingFix> chunk = new ArrayList<>(MAX_DRAIN);
+        while (running) {
+            try {
+                PendingFix first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                chunk.add(first);
+                queue.drainTo(chunk, MAX_DRAIN - 1);
+                flush(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Failed to write {} GPS fixes", chunk.size(), e);
+            } finally {
+                chunk.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingFix> chunk) {
+        Map<UUID, PendingFix> latest = new LinkedHashMap<>();
+        for (PendingFix fix : chunk) {
+            BusResponse bus = fleetState.get(fix.busId()).orElse(null);
+            if (bus == null) {
+                forget(fix.busId()); // deleted since it was accepted
+                continue;
+            }
+            kafkaProducerService.publishLocationUpdate(toEvent(bus, fix));
+            latest.merge(fix.busId(), fix, (a, b) -> b.timestamp().isAfter(a.timestamp()) ? b : a);
+        }
+
+        List<Object[]> rows = new ArrayList<>(latest.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (PendingFix fix : latest.values()) {
+            // Apply the newest fix right away so reads do not wait for the Kafka round trip
+            fleetState.get(fix.busId()).ifPresent(bus -> fleetState.applyLocation(toEvent(bus, fix)));
+            Timestamp fixTime = Timestamp.valueOf(fix.timestamp());
+            rows.add(new Object[]{fix.latitude(), fix.longitude(), fix.speed(), fix.heading(), fixTime,
+                    Timestamp.valueOf(now), fix.busId(), fixTime});
+        }
+        if (!rows.isEmpty()) {
+            int[] types = {Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.TIMESTAMP,
+                    Types.TIMESTAMP, Types.OTHER, Types.TIMESTAMP};
+            jdbcTemplate.batchUpdate(UPDATE_LOCATION_SQL, rows, types);
+        }
+        log.debug("Flushed {} GPS fixes, {} bus rows updated", chunk.size(), rows.size());
+    }
+
+    private static BusLocationEvent toEvent(BusResponse bus, PendingFix fix) {
+        return new BusLocationEvent(
+                bus.getId().toString(),
+                bus.getBusNumber(),
+                bus.getLineCode(),
+                fix.latitude(),
+                fix.longitude(),
+                fix.speed(),
+                fix.heading(),
+                fix.timestamp(),
+                fix.receivedAtMillis()
+        );
+    }
+
+    private static LocalDateTime newest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+}
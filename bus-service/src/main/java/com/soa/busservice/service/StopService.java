@@ -0,0 +1,65 @@
+package com.soa.busservice.service;
+
+import com.soa.busservice.dto.StopArrivalResponse;
+import com.soa.busservice.dto.StopResponse;
+import com.soa.busservice.simulation.RouteGeometry;
+import com.soa.busservice.simulation.RouteGeometryCache;
+import com.soa.busservice.tracking.EtaEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StopService {
+
+    private final RouteGeometryCache routeCache;
+    private final EtaEngine etaEngine;
+
+    public List<StopArrivalResponse> getArrivals(String stopId, int limit) {
+        log.info("Fetching next {} arrivals for stop: {}", limit, stopId);
+        if (limit < 1 || limit > 50) {
+            throw new IllegalArgumentException("Limit must be between 1 and 50");
+        }
+        if (!routeCache.isKnownStop(stopId)) {
+            throw new IllegalArgumentException("Stop not found with ID: " + stopId);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        return etaEngine.getArrivals(stopId, limit).stream()
+                .map(arrival -> new StopArrivalResponse(
+                        arrival.stopId(),
+                        arrival.busId(),
+                        arrival.busNumber(),
+                        arrival.lineCode(),
+                        arrival.expectedAt(),
+                        Math.max(0, Duration.between(now, arrival.expectedAt()).getSeconds()),
+                        arrival.distanceMeters()))
+                .collect(Collectors.toList());
+    }
+
+    public List<StopResponse> getLineStops(String lineCode) {
+        log.info("Fetching stops for line: {}", lineCode);
+        RouteGeometry geometry = routeCache.getGeometry(lineCode);
+        if (geometry == null) {
+            throw new IllegalArgumentException("No route geometry known for line: " + lineCode);
+        }
+        return geometry.getStops().stream()
+                .filter(stop -> stop.stopId() != null)
+                .map(stop -> new StopResponse(
+                        stop.stopId(),
+                        stop.name(),
+                        lineCode,
+                        stop.sequence(),
+                        stop.latitude(),
+                        stop.longitude(),
+                        stop.distanceAlongRoute()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,198 @@
+package com.soa.busservice.service;
+
+import com.soa.busservice.dto.TrajectoryPoint;
+import com.soa.busservice.repository.BusLocationHistoryRepository;
+import com.soa.busservice.repository.BusRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Trajectory queries and replays over the location history.
+ * The time range is read in keyset chunks, each in its own short read-only transaction, and
+ * pushed to a sink between chunks: memory stays bounded by the chunk size, and a paced replay
+ * only waits once its chunk has been read, so no connection is held while it sleeps.
+ */
+@Service
+@Slf4j
+public class TrajectoryService {
+
+    private static final Duration MAX_WINDOW = Duration.ofDays(7);
+    private static final int CHUNK_SIZE = 500;
+
+    private final BusLocationHistoryRepository historyRepository;
+    private final BusRepository busRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public TrajectoryService(BusLocationHistoryRepository historyRepository,
+                             BusRepository busRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.historyRepository = historyRepository;
+        this.busRepository = busRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Receives streamed points; an IOException (typically a disconnected client) aborts the stream.
+     */
+    @FunctionalInterface
+    public interface PointSink {
+        void accept(TrajectoryPoint point) throws IOException;
+    }
+
+    /**
+     * Reads the points strictly after (afterTime, afterId), in (recordedAt, id) order.
+     */
+    @FunctionalInterface
+    private interface ChunkSource {
+        List<TrajectoryPoint> read(LocalDateTime afterTime, long afterId, Pageable chunk);
+    }
+
+    /**
+     * A validated, not yet executed query. Validation happens eagerly so that bad
+     * requests are rejected before any response bytes are committed.
+     */
+    public class TrajectoryQuery {
+        private final ChunkSource source;
+        private final LocalDateTime from;
+        private final Duration minInterval;
+        private final Double speedFactor;
+
+        // Downsampling is per bus so a line replay keeps every vehicle at the same resolution
+        private final Map<UUID, LocalDateTime> lastEmitted = new HashMap<>();
+        private LocalDateTime replayOrigin;
+        private long wallOrigin;
+
+        private TrajectoryQuery(ChunkSource source, LocalDateTime from, Duration minInterval, Double speedFactor) {
+            this.source = source;
+            this.from = from;
+            this.minInterval = minInterval;
+            this.speedFactor = speedFactor;
+        }
+
+        public boolean isPaced() {
+            return speedFactor != null;
+        }
+
+        public void forEach(PointSink sink) throws IOException {
+            LocalDateTime afterTime = from;
+            long afterId = Long.MIN_VALUE;
+            Pageable chunk = PageRequest.of(0, CHUNK_SIZE);
+            lastEmitted.clear();
+            replayOrigin = null;
+            wallOrigin = System.nanoTime();
+
+            while (true) {
+                LocalDateTime chunkAfterTime = afterTime;
+                long chunkAfterId = afterId;
+                List<TrajectoryPoint> points = readOnlyTransaction.execute(
+                        status -> source.read(chunkAfterTime, chunkAfterId, chunk));
+                // The transaction is over: waiting for the replay clock no longer holds a connection
+                for (TrajectoryPoint point : points) {
+                    if (!emit(point, sink)) {
+                        return;
+                    }
+                }
+                if (points.size() < CHUNK_SIZE) {
+                    return;
+                }
+                TrajectoryPoint last = points.get(points.size() - 1);
+                afterTime = last.recordedAt();
+                afterId = last.id();
+            }
+        }
+
+        /**
+         * @return false when the replay was interrupted and must stop
+         */
+        private boolean emit(TrajectoryPoint point, PointSink sink) throws IOException {
+            if (minInterval != null) {
+                LocalDateTime previous = lastEmitted.get(point.busId());
+                if (previous != null && Duration.between(previous, point.recordedAt()).compareTo(minInterval) < 0) {
+                    return true;
+                }
+                lastEmitted.put(point.busId(), point.recordedAt());
+            }
+
+            if (speedFactor != null) {
+                if (replayOrigin == null) {
+                    replayOrigin = point.recordedAt();
+                }
+                long dueNanos = (long) (Duration.between(replayOrigin, point.recordedAt()).toNanos() / speedFactor);
+                long waitNanos = dueNanos - (System.nanoTime() - wallOrigin);
+                if (waitNanos > 0) {
+                    try {
+                        Thread.sleep(Duration.ofNanos(waitNanos).toMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+
+            sink.accept(point);
+            return true;
+        }
+    }
+
+    public TrajectoryQuery busTrajectory(UUID busId, LocalDateTime from, LocalDateTime to,
+                                         Integer intervalSeconds, Double speedFactor) {
+        if (!busRepository.existsById(busId)) {
+            throw new IllegalArgumentException("Bus not found with ID: " + busId);
+        }
+        LocalDateTime end = resolveEnd(from, to);
+        log.info("Streaming trajectory for bus {} between {} and {}", busId, from, end);
+        return new TrajectoryQuery(
+                (afterTime, afterId, chunk) -> historyRepository.findChunkByBus(busId, afterTime, afterId, end, chunk),
+                from, toInterval(intervalSeconds), checkSpeed(speedFactor));
+    }
+
+    public TrajectoryQuery lineReplay(String lineCode, LocalDateTime from, LocalDateTime to,
+                                      Integer intervalSeconds, Double speedFactor) {
+        LocalDateTime end = resolveEnd(from, to);
+        log.info("Streaming replay for line {} between {} and {}", lineCode, from, end);
+        return new TrajectoryQuery(
+                (afterTime, afterId, chunk) -> historyRepository.findChunkByLine(lineCode, afterTime, afterId, end, chunk),
+                from, toInterval(intervalSeconds), checkSpeed(speedFactor));
+    }
+
+    private LocalDateTime resolveEnd(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        if (!from.isBefore(end)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (Duration.between(from, end).compareTo(MAX_WINDOW) > 0) {
+            throw new IllegalArgumentException("Time range cannot exceed " + MAX_WINDOW.toDays() + " days");
+        }
+        return end;
+    }
+
+    private Duration toInterval(Integer intervalSeconds) {
+        if (intervalSeconds == null || intervalSeconds == 0) {
+            return null;
+        }
+        if (intervalSeconds < 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        return Duration.ofSeconds(intervalSeconds);
+    }
+
+    private Double checkSpeed(Double speedFactor) {
+        if (speedFactor != null && speedFactor <= 0) {
+            throw new IllegalArgumentException("Playback speed must be greater than 0");
+        }
+        return speedFactor;
+    }
+}
@@ -16,6 +16,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -74,6 +75,10 @@ public class BusMovementSimulator {
         log.info("Bus {} added to simulation engine", busId);
     }
 
+    public void addBuses(Collection<UUID> busIds) {
+        busIds.forEach(this::addBus);
+    }
+
     @Scheduled(fixedRate = 1000) // 1 Hz Tick (Every 1 second)
     public void tick() {
         busContexts.forEach((busId, ctx) -> {
@@ -192,7 +197,8 @@ public class BusMovementSimulator {
                 lon, 
                 speed, 
                 0.0, 
-                LocalDateTime.now()
+                LocalDateTime.now(),
+                System.currentTimeMillis()
         ));
     }
 
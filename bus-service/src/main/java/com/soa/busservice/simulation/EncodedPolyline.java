@@ -0,0 +1,56 @@
+package com.soa.busservice.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes route geometry as sent by trajet-service: one polyline6 (Google polyline algorithm,
+ * 1e-6 degree precision) per segment, segments separated by spaces.
+ */
+public final class EncodedPolyline {
+
+    private static final double PRECISION = 1e6;
+    private static final char SEGMENT_SEPARATOR = ' ';
+
+    private EncodedPolyline() {
+    }
+
+    /**
+     * All points, segment after segment, as {latitude, longitude}.
+     */
+    public static List<double[]> decode(String encoded) {
+        List<double[]> path = new ArrayList<>(encoded.length() / 6);
+        int index = 0;
+        int length = encoded.length();
+        long[] value = new long[1];
+        while (index < length) {
+            long lat = 0;
+            long lon = 0;
+            while (index < length && encoded.charAt(index) != SEGMENT_SEPARATOR) {
+                index = readValue(encoded, index, value);
+                lat += value[0];
+                index = readValue(encoded, index, value);
+                lon += value[0];
+                path.add(new double[]{lat / PRECISION, lon / PRECISION});
+            }
+            index++; // separator
+        }
+        return path;
+    }
+
+    private static int readValue(String encoded, int index, long[] value) {
+        long bits = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            if (index >= encoded.length()) {
+                throw new IllegalArgumentException("Truncated encoded polyline");
+            }
+            chunk = encoded.charAt(index++) - 63;
+            bits |= (long) (chunk & 0x1f) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        value[0] = (bits & 1) != 0 ? ~(bits >>> 1) : bits >>> 1;
+        return index;
+    }
+}
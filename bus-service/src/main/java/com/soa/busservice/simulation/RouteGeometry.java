@@ -0,0 +1,281 @@
+package com.soa.busservice.simulation;
+
+import com.soa.busservice.dto.RouteMatch;
+import com.soa.busservice.tracking.GeoUtils;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable route polyline with precomputed arc lengths, stop positions and a grid index of its
+ * segments for map matching. Vertices are [lat, lon]; distances are meters from the first vertex.
+ * Stops are projected onto the polyline in route order and listed by distance along the route.
+ */
+@Getter
+public final class RouteGeometry {
+
+    private final Long routeId;
+    private final String routeName;
+    private final String direction;
+    private final List<double[]> path;
+    private final double[] cumulativeDistance;
+    private final List<RouteStopPoint> stops;
+    @Getter(AccessLevel.NONE)
+    private final Set<Integer> stopVertices;
+    // Segment indexes per grid cell; a segment is listed in every cell its bounding box touches
+    @Getter(AccessLevel.NONE)
+    private final Map<Long, int[]> segmentGrid;
+    // Segments too long for the grid, examined for every fix
+    @Getter(AccessLevel.NONE)
+    private final int[] unindexedSegments;
+
+    private static final double CELL_DEGREES = 0.002; // ~200 m
+    private static final int MAX_SEARCH_RINGS = 3;
+    private static final int MAX_CELLS_PER_SEGMENT = 64;
+    private static final double MATCH_TOLERANCE_METERS = 15.0;
+
+    /**
+     * A stop as published by the route service, in route order; stopId is null for stand-in stops
+     * that only tell the simulator where to dwell.
+     */
+    public record StopLocation(String stopId, String name, double latitude, double longitude) {}
+
+    /**
+     * A stop on the route: vertexIndex is the vertex nearest to its projection, latitude and longitude
+     * are the stop's own position.
+     */
+    public record RouteStopPoint(String stopId, String name, int sequence, int vertexIndex,
+                                 double distanceAlongRoute, double latitude, double longitude) {}
+
+    RouteGeometry(Long routeId, String routeName, String direction, List<double[]> path,
+                  List<StopLocation> stopLocations) {
+        this.routeId = routeId;
+        this.routeName = routeName;
+        this.direction = direction;
+        this.path = Collections.unmodifiableList(path);
+
+        this.cumulativeDistance = new double[path.size()];
+        for (int i = 1; i < path.size(); i++) {
+            double[] a = path.get(i - 1);
+            double[] b = path.get(i);
+            cumulativeDistance[i] = cumulativeDistance[i - 1] + GeoUtils.distanceMeters(a[0], a[1], b[0], b[1]);
+        }
+        List<Integer> unindexed = new ArrayList<>();
+        this.segmentGrid = buildSegmentGrid(unindexed);
+        this.unindexedSegments = unindexed.stream().mapToInt(Integer::intValue).toArray();
+
+        List<RouteStopPoint> stopPoints = new ArrayList<>(stopLocations.size());
+        Set<Integer> vertices = new HashSet<>();
+        double previousAlong = -1;
+        int sequence = 0;
+        for (StopLocation stop : stopLocations) {
+            sequence++;
+            // The previous stop's position is the hint, so stops where the route passes twice land on the right pass
+            double along = path.size() < 2 ? 0
+                    : match(stop.latitude(), stop.longitude(), previousAlong).distanceAlongRoute();
+            int vertex = nearestVertex(along);
+            stopPoints.add(new RouteStopPoint(stop.stopId(), stop.name(), sequence, vertex, along,
+                    stop.latitude(), stop.longitude()));
+            vertices.add(vertex);
+            previousAlong = along;
+        }
+        stopPoints.sort(Comparator.comparingDouble(RouteStopPoint::distanceAlongRoute));
+        this.stops = Collections.unmodifiableList(stopPoints);
+        this.stopVertices = vertices;
+    }
+
+    /**
+     * Distance along the route to the closest stop, in either direction. Binary search over the stops,
+     * which are ordered by distance along the route.
+     */
+    public double distanceToNearestStop(double distanceAlongRoute) {
+        int low = 0;
+        int high = stops.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (stops.get(mid).distanceAlongRoute() < distanceAlongRoute) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        double nearest = Double.MAX_VALUE;
+        if (low < stops.size()) {
+            nearest = stops.get(low).distanceAlongRoute() - distanceAlongRoute;
+        }
+        if (low > 0) {
+            nearest = Math.min(nearest, distanceAlongRoute - stops.get(low - 1).distanceAlongRoute());
+        }
+        return nearest;
+    }
+
+    public boolean isStopVertex(int index) {
+        return stopVertices.contains(index);
+    }
+
+    public double getLengthMeters() {
+        return cumulativeDistance.length == 0 ? 0 : cumulativeDistance[cumulativeDistance.length - 1];
+    }
+
+    /**
+     * Snaps (lat, lon) onto the closest point of the polyline. The few segments too long for the grid are
+     * always examined; otherwise only segments in grid cells around the fix are, widening ring by ring
+     * until no unexamined segment can be closer. Fixes far from the route fall back to a full scan.
+     * Where the route passes the same place twice, segments within {@link #MATCH_TOLERANCE_METERS} of the
+     * best one compete on closeness to {@code hintAlong}, the previous distance along the route (negative
+     * when unknown). Segments are compared in a local equirectangular frame, which is accurate at city scale.
+     *
+     * @return the match, or null for routes with fewer than two vertices
+     */
+    public RouteMatch match(double lat, double lon, double hintAlong) {
+        if (path.size() < 2) {
+            return null;
+        }
+        Candidate best = new Candidate(lat, lon, hintAlong);
+        int row = (int) Math.floor(lat / CELL_DEGREES);
+        int col = (int) Math.floor(lon / CELL_DEGREES);
+        double cellMeters = CELL_DEGREES * Math.min(GeoUtils.METERS_PER_DEGREE_LAT, GeoUtils.metersPerDegreeLon(lat));
+
+        for (int segment : unindexedSegments) {
+            best.consider(segment);
+        }
+
+        for (int ring = 0; ring <= MAX_SEARCH_RINGS; ring++) {
+            for (int r = row - ring; r <= row + ring; r++) {
+                for (int c = col - ring; c <= col + ring; c++) {
+                    if (Math.max(Math.abs(r - row), Math.abs(c - col)) != ring) {
+                        continue; // inner cells were examined by earlier rings
+                    }
+                    int[] segments = segmentGrid.get(cellKey(r, c));
+                    if (segments != null) {
+                        for (int segment : segments) {
+                            best.consider(segment);
+                        }
+                    }
+                }
+            }
+            // Anything not yet seen lies at least 'ring' whole cells away from the fix
+            if (best.segment >= 0 && best.offset + MATCH_TOLERANCE_METERS <= ring * cellMeters) {
+                return best.toMatch();
+            }
+        }
+        for (int segment = 0; segment < path.size() - 1; segment++) {
+            best.consider(segment);
+        }
+        return best.toMatch();
+    }
+
+    private int nearestVertex(double distanceAlongRoute) {
+        int index = Arrays.binarySearch(cumulativeDistance, distanceAlongRoute);
+        if (index >= 0) {
+            return index;
+        }
+        int after = Math.min(-index - 1, cumulativeDistance.length - 1);
+        int before = Math.max(after - 1, 0);
+        return distanceAlongRoute - cumulativeDistance[before] <= cumulativeDistance[after] - distanceAlongRoute
+                ? before : after;
+    }
+
+    private Map<Long, int[]> buildSegmentGrid(List<Integer> unindexed) {
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        for (int i = 0; i < path.size() - 1; i++) {
+            double[] a = path.get(i);
+            double[] b = path.get(i + 1);
+            int minRow = (int) Math.floor(Math.min(a[0], b[0]) / CELL_DEGREES);
+            int maxRow = (int) Math.floor(Math.max(a[0], b[0]) / CELL_DEGREES);
+            int minCol = (int) Math.floor(Math.min(a[1], b[1]) / CELL_DEGREES);
+            int maxCol = (int) Math.floor(Math.max(a[1], b[1]) / CELL_DEGREES);
+            if ((long) (maxRow - minRow + 1) * (maxCol - minCol + 1) > MAX_CELLS_PER_SEGMENT) {
+                unindexed.add(i); // jumps between the parts of a multi-line route
+                continue;
+            }
+            for (int r = minRow; r <= maxRow; r++) {
+                for (int c = minCol; c <= maxCol; c++) {
+                    cells.computeIfAbsent(cellKey(r, c), k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        Map<Long, int[]> grid = new HashMap<>(cells.size() * 2);
+        cells.forEach((key, segments) -> grid.put(key, segments.stream().mapToInt(Integer::intValue).toArray()));
+        return grid;
+    }
+
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Best segment seen so far for one fix, kept in primitives so matching allocates only its result.
+     */
+    private final class Candidate {
+        final double lat;
+        final double lon;
+        final double hintAlong;
+        final double metersPerLon;
+        int segment = -1;
+        double offset = Double.MAX_VALUE;
+        double along;
+        double x;
+        double y;
+        double bearing;
+
+        Candidate(double lat, double lon, double hintAlong) {
+            this.lat = lat;
+            this.lon = lon;
+            this.hintAlong = hintAlong;
+            this.metersPerLon = GeoUtils.metersPerDegreeLon(lat);
+        }
+
+        void consider(int i) {
+            double[] a = path.get(i);
+            double[] b = path.get(i + 1);
+            double ax = (a[1] - lon) * metersPerLon;
+            double ay = (a[0] - lat) * GeoUtils.METERS_PER_DEGREE_LAT;
+            double dx = (b[1] - lon) * metersPerLon - ax;
+            double dy = (b[0] - lat) * GeoUtils.METERS_PER_DEGREE_LAT - ay;
+            double lengthSq = dx * dx + dy * dy;
+            double t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSq));
+            double px = ax + t * dx;
+            double py = ay + t * dy;
+            double distance = Math.sqrt(px * px + py * py);
+            double candidateAlong = cumulativeDistance[i] + t * (cumulativeDistance[i + 1] - cumulativeDistance[i]);
+
+            if (!isBetter(distance, candidateAlong)) {
+                return;
+            }
+            segment = i;
+            offset = distance;
+            along = candidateAlong;
+            x = px;
+            y = py;
+            bearing = (Math.toDegrees(Math.atan2(dx, dy)) + 360) % 360;
+        }
+
+        private boolean isBetter(double distance, double candidateAlong) {
+            if (segment < 0) {
+                return true;
+            }
+            if (hintAlong < 0 || Math.abs(distance - offset) > MATCH_TOLERANCE_METERS) {
+                return distance < offset;
+            }
+            return Math.abs(candidateAlong - hintAlong) < Math.abs(along - hintAlong);
+        }
+
+        RouteMatch toMatch() {
+            return new RouteMatch(along,
+                    lat + y / GeoUtils.METERS_PER_DEGREE_LAT,
+                    lon + x / metersPerLon,
+                    bearing,
+                    offset);
+        }
+    }
+}
@@ -7,13 +7,27 @@ import org.springframework.stereotype.Component;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Route geometries by route key, which deployed buses use as their line code. The key is the route
+ * name, which the route service gives each direction of a line; should another direction already
+ * hold the name, the newcomer is keyed "name (direction)" instead of overwriting it.
+ */
 @Component
 public class RouteGeometryCache {
-    private final Map<String, List<double[]>> routePaths = new ConcurrentHashMap<>();
-    private final Map<String, Set<Integer>> routeStopsIndices = new ConcurrentHashMap<>();
+    private final Map<String, RouteGeometry> routes = new ConcurrentHashMap<>();
+    // Route keys serving each stop: a stop shared by several routes stays known until the last one goes
+    private final Map<String, Set<String>> routesByStop = new ConcurrentHashMap<>();
     private final ObjectMapper mapper = new ObjectMapper();
 
     public void cacheRoute(String routeName, String geoJson) {
+        cacheRoute(null, routeName, null, geoJson, List.of());
+    }
+
+    /**
+     * @return the key the route is cached under, or null when its geometry is unusable
+     */
+    public String cacheRoute(Long routeId, String routeName, String direction, String geoJson,
+                             List<RouteGeometry.StopLocation> stops) {
         try {
             JsonNode root = mapper.readTree(geoJson);
             List<double[]> path = new ArrayList<>();
@@ -34,35 +48,99 @@ public class RouteGeometryCache {
                 }
             }
 
-            if (!path.isEmpty()) {
-                routePaths.put(routeName, path);
-                
-                // Heuristic: Simulate stops every ~15 nodes and at the ends
-                // In a real production system, these indices would come from the route-service
-                Set<Integer> stops = new HashSet<>();
-                stops.add(0); // Start (Terminus)
-                for (int i = 10; i < path.size() - 10; i += 15) {
-                    stops.add(i);
-                }
-                stops.add(path.size() - 1); // End (Terminus)
-                routeStopsIndices.put(routeName, stops);
-            }
+            return cachePath(routeId, routeName, direction, path, stops);
         } catch (Exception e) {
             System.err.println("Invalid geometry for " + routeName + ": " + e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * @return the key the route is cached under, or null when its geometry is unusable
+     */
+    public String cacheEncodedRoute(Long routeId, String routeName, String direction, String encodedGeometry,
+                                    List<RouteGeometry.StopLocation> stops) {
+        try {
+            return cachePath(routeId, routeName, direction, EncodedPolyline.decode(encodedGeometry), stops);
+        } catch (Exception e) {
+            System.err.println("Invalid geometry for " + routeName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized String cachePath(Long routeId, String routeName, String direction, List<double[]> path,
+                                          List<RouteGeometry.StopLocation> stops) {
+        if (path.isEmpty()) {
+            return null;
+        }
+        if (stops == null || stops.isEmpty()) {
+            // Events without stops: stand-in stops every ~15 nodes and at the ends, only for the simulator to
+            // dwell at; they have no id, so they never reach the stop endpoints
+            stops = new ArrayList<>();
+            stops.add(standIn(path, 0)); // Start (Terminus)
+            for (int i = 10; i < path.size() - 10; i += 15) {
+                stops.add(standIn(path, i));
+            }
+            if (path.size() > 1) {
+                stops.add(standIn(path, path.size() - 1)); // End (Terminus)
+            }
+        }
+
+        String key = keyFor(routeId, routeName, direction);
+        RouteGeometry geometry = new RouteGeometry(routeId, key, direction, path, stops);
+        RouteGeometry previous = routes.put(key, geometry);
+        if (previous != null) {
+            previous.getStops().forEach(stop -> {
+                if (stop.stopId() != null) {
+                    routesByStop.computeIfPresent(stop.stopId(), (id, keys) -> {
+                        keys.remove(key);
+                        return keys.isEmpty() ? null : keys;
+                    });
+                }
+            });
+        }
+        geometry.getStops().forEach(stop -> {
+            if (stop.stopId() != null) {
+                routesByStop.computeIfAbsent(stop.stopId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+        });
+        return key;
+    }
+
+    private String keyFor(Long routeId, String routeName, String direction) {
+        RouteGeometry holder = routes.get(routeName);
+        if (holder == null || Objects.equals(holder.getRouteId(), routeId)
+                || Objects.equals(holder.getDirection(), direction)) {
+            return routeName; // new, or a re-import of the same route
+        }
+        return routeName + " (" + direction + ")";
+    }
+
+    private static RouteGeometry.StopLocation standIn(List<double[]> path, int index) {
+        double[] vertex = path.get(index);
+        return new RouteGeometry.StopLocation(null, null, vertex[0], vertex[1]);
+    }
+
+    public RouteGeometry getGeometry(String routeName) {
+        return routes.get(routeName);
+    }
+
+    public boolean isKnownStop(String stopId) {
+        return routesByStop.containsKey(stopId);
+    }
+
     public List<double[]> getPath(String routeName) {
-        return routePaths.get(routeName);
+        RouteGeometry geometry = routes.get(routeName);
+        return geometry != null ? geometry.getPath() : null;
     }
 
     public boolean isStop(String routeName, int index) {
-        Set<Integer> stops = routeStopsIndices.get(routeName);
-        return stops != null && stops.contains(index);
+        RouteGeometry geometry = routes.get(routeName);
+        return geometry != null && geometry.isStopVertex(index);
     }
     
     public int getRouteSize(String routeName) {
-        List<double[]> path = routePaths.get(routeName);
+        List<double[]> path = getPath(routeName);
         return path != null ? path.size() : 0;
     }
-}
\ No newline at end of file
+}
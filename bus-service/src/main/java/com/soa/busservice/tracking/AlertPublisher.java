@@ -0,0 +1,50 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.event.BusAlertEvent;
+import com.soa.busservice.kafka.KafkaProducerService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Sends alerts raised by the fleet state listeners to the bus.alerts topic. Listeners run under the
+ * fleet state's write lock, so the Kafka send is handed to a single background thread, which also
+ * keeps each bus's raised/cleared events in order.
+ */
+@Component
+@RequiredArgsConstructor
+public class AlertPublisher {
+
+    private final KafkaProducerService kafkaProducerService;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "alert-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public void publish(BusResponse bus, BusAlertEvent.Type type, boolean active, String message) {
+        BusAlertEvent event = new BusAlertEvent(
+                bus.getId().toString(),
+                bus.getBusNumber(),
+                bus.getLineCode(),
+                type,
+                active,
+                bus.getLatitude(),
+                bus.getLongitude(),
+                message,
+                LocalDateTime.now()
+        );
+        executor.execute(() -> kafkaProducerService.publishAlert(event));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,203 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.dto.RouteMatch;
+import com.soa.busservice.event.BusAlertEvent.Type;
+import com.soa.busservice.model.Status;
+import com.soa.busservice.simulation.RouteGeometry;
+import com.soa.busservice.simulation.RouteGeometryCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Flags active buses that stand still away from a stop, drift off their route, or stop reporting.
+ * Every location change is evaluated against that bus's state alone; staleness uses a deadline queue
+ * so the sweeper only touches buses whose deadline just passed. Alerts are edge-triggered: raised once
+ * when a condition starts and cleared once when it ends.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnomalyDetector implements FleetStateListener {
+
+    private final RouteGeometryCache routeCache;
+    private final AlertPublisher alertPublisher;
+
+    @Value("${fleet.alerts.stationary-after-seconds:180}")
+    private long stationaryAfterSeconds;
+
+    @Value("${fleet.alerts.stationary-radius-meters:25}")
+    private double stationaryRadiusMeters;
+
+    @Value("${fleet.alerts.stop-radius-meters:40}")
+    private double stopRadiusMeters;
+
+    @Value("${fleet.alerts.off-route-meters:100}")
+    private double offRouteMeters;
+
+    @Value("${fleet.stats.stale-after-seconds:60}")
+    private long staleAfterSeconds;
+
+    private final Map<UUID, BusState> states = new HashMap<>();
+    private final ConcurrentSkipListSet<Deadline> staleDeadlines = new ConcurrentSkipListSet<>();
+
+    private static final class BusState {
+        BusResponse bus;
+        long lastFixMillis = Long.MIN_VALUE;
+        // Where the bus was when it was last seen moving more than the stationary radius
+        double anchorLatitude;
+        double anchorLongitude;
+        long anchorMillis;
+        boolean stationary;
+        boolean offRoute;
+        boolean stale;
+        Deadline staleDeadline;
+    }
+
+    private record Deadline(long epochMillis, UUID busId) implements Comparable<Deadline> {
+        @Override
+        public int compareTo(Deadline other) {
+            int byTime = Long.compare(epochMillis, other.epochMillis);
+            return byTime != 0 ? byTime : busId.compareTo(other.busId);
+        }
+    }
+
+    @Override
+    public synchronized void onBusChanged(BusResponse previous, BusResponse current) {
+        if (current == null || current.getStatus() != Status.ACTIVE
+                || current.getLatitude() == null || current.getLongitude() == null
+                || current.getLastLocationUpdate() == null) {
+            UUID busId = current != null ? current.getId() : previous.getId();
+            BusState removed = states.remove(busId);
+            if (removed != null) {
+                clearAll(removed, current != null ? current : removed.bus);
+            }
+            return;
+        }
+
+        BusState state = states.computeIfAbsent(current.getId(), id -> new BusState());
+        long fixMillis = toMillis(current.getLastLocationUpdate());
+        boolean newFix = fixMillis != state.lastFixMillis;
+        state.bus = current;
+        if (!newFix) {
+            return; // not a location change
+        }
+
+        if (state.lastFixMillis == Long.MIN_VALUE) {
+            anchor(state, current, fixMillis);
+        }
+        state.lastFixMillis = fixMillis;
+
+        scheduleStaleCheck(state, current.getId(), fixMillis);
+        if (state.stale) {
+            state.stale = false;
+            alertPublisher.publish(current, Type.GPS_STALE, false, "GPS reports resumed");
+        }
+
+        checkStationary(state, current, fixMillis);
+        checkOffRoute(state, current);
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public synchronized void expireStaleFixes() {
+        long now = System.currentTimeMillis();
+        while (!staleDeadlines.isEmpty()) {
+            Deadline head = staleDeadlines.first();
+            if (head.epochMillis() > now) {
+                break;
+            }
+            staleDeadlines.remove(head);
+            BusState state = states.get(head.busId());
+            if (state != null && state.staleDeadline == head) {
+                state.staleDeadline = null;
+                state.stale = true;
+                alertPublisher.publish(state.bus, Type.GPS_STALE, true,
+                        "No GPS fix for more than " + staleAfterSeconds + " s");
+            }
+        }
+    }
+
+    private void scheduleStaleCheck(BusState state, UUID busId, long fixMillis) {
+        if (state.staleDeadline != null) {
+            staleDeadlines.remove(state.staleDeadline);
+        }
+        state.staleDeadline = new Deadline(fixMillis + staleAfterSeconds * 1000, busId);
+        staleDeadlines.add(state.staleDeadline);
+    }
+
+    private void checkStationary(BusState state, BusResponse bus, long fixMillis) {
+        double moved = GeoUtils.distanceMeters(state.anchorLatitude, state.anchorLongitude,
+                bus.getLatitude(), bus.getLongitude());
+        if (moved > stationaryRadiusMeters) {
+            anchor(state, bus, fixMillis);
+            if (state.stationary) {
+                state.stationary = false;
+                alertPublisher.publish(bus, Type.STATIONARY, false, "Bus is moving again");
+            }
+            return;
+        }
+        long stillSeconds = (fixMillis - state.anchorMillis) / 1000;
+        if (!state.stationary && stillSeconds >= stationaryAfterSeconds && !isAtStop(bus)) {
+            state.stationary = true;
+            alertPublisher.publish(bus, Type.STATIONARY, true, "Stationary for " + stillSeconds + " s outside a stop");
+        }
+    }
+
+    private void checkOffRoute(BusState state, BusResponse bus) {
+        RouteMatch match = bus.getRouteMatch();
+        if (match == null) {
+            return;
+        }
+        // Clearing needs the bus well back on the route, so GPS noise around the threshold does not flap
+        if (!state.offRoute && match.offsetMeters() > offRouteMeters) {
+            state.offRoute = true;
+            alertPublisher.publish(bus, Type.OFF_ROUTE, true,
+                    String.format("%.0f m off route", match.offsetMeters()));
+        } else if (state.offRoute && match.offsetMeters() < offRouteMeters / 2) {
+            state.offRoute = false;
+            alertPublisher.publish(bus, Type.OFF_ROUTE, false, "Back on route");
+        }
+    }
+
+    private boolean isAtStop(BusResponse bus) {
+        RouteMatch match = bus.getRouteMatch();
+        RouteGeometry geometry = routeCache.getGeometry(bus.getLineCode());
+        if (match == null || geometry == null || match.offsetMeters() > stopRadiusMeters) {
+            return false;
+        }
+        return geometry.distanceToNearestStop(match.distanceAlongRoute()) <= stopRadiusMeters;
+    }
+
+    private void anchor(BusState state, BusResponse bus, long fixMillis) {
+        state.anchorLatitude = bus.getLatitude();
+        state.anchorLongitude = bus.getLongitude();
+        state.anchorMillis = fixMillis;
+    }
+
+    private void clearAll(BusState state, BusResponse bus) {
+        if (state.staleDeadline != null) {
+            staleDeadlines.remove(state.staleDeadline);
+        }
+        if (state.stationary) {
+            alertPublisher.publish(bus, Type.STATIONARY, false, "Bus is no longer tracked");
+        }
+        if (state.offRoute) {
+            alertPublisher.publish(bus, Type.OFF_ROUTE, false, "Bus is no longer tracked");
+        }
+        if (state.stale) {
+            alertPublisher.publish(bus, Type.GPS_STALE, false, "Bus is no longer tracked");
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,127 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.model.Status;
+import com.soa.busservice.simulation.RouteGeometry;
+import com.soa.busservice.simulation.RouteGeometryCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Stop arrival predictions, maintained incrementally from position changes.
+ * Each fix's map-matched distance along the route (see {@link MapMatcher}) gives the next stops ahead an ETA
+ * from a smoothed speed, and the per-stop tables (sorted by ETA) only swap this bus's entries.
+ */
+@Component
+@RequiredArgsConstructor
+public class EtaEngine implements FleetStateListener {
+
+    private static final int STOPS_AHEAD = 5;
+    private static final double SPEED_SMOOTHING = 0.3;
+    // Dwell times and traffic lights make instantaneous 0 km/h readings meaningless for ETAs
+    private static final double MIN_SPEED_MPS = 4.0;
+    private static final double DEFAULT_SPEED_MPS = 8.0;
+    private static final long EXPIRED_AFTER_SECONDS = 60;
+
+    private final RouteGeometryCache routeCache;
+
+    private final Map<String, ConcurrentSkipListSet<Arrival>> arrivalsByStop = new ConcurrentHashMap<>();
+    private final Map<UUID, BusEta> busEtas = new ConcurrentHashMap<>();
+
+    public record Arrival(String stopId, UUID busId, String busNumber, String lineCode,
+                          LocalDateTime expectedAt, double distanceMeters) {}
+
+    private static final Comparator<Arrival> BY_ETA = Comparator
+            .comparing(Arrival::expectedAt)
+            .thenComparing(Arrival::busId);
+
+    private static final class BusEta {
+        double smoothedSpeedMps = DEFAULT_SPEED_MPS;
+        double distanceAlongRoute;
+        List<Arrival> published = List.of();
+    }
+
+    @Override
+    public void onBusChanged(BusResponse previous, BusResponse current) {
+        if (current == null || current.getStatus() != Status.ACTIVE || current.getRouteMatch() == null) {
+            UUID busId = current != null ? current.getId() : previous.getId();
+            BusEta removed = busEtas.remove(busId);
+            if (removed != null) {
+                unpublish(removed.published);
+            }
+            return;
+        }
+
+        RouteGeometry geometry = routeCache.getGeometry(current.getLineCode());
+        if (geometry == null || geometry.getStops().isEmpty()) {
+            return;
+        }
+
+        BusEta state = busEtas.computeIfAbsent(current.getId(), id -> new BusEta());
+        if (current.getSpeed() != null) {
+            double reportedMps = current.getSpeed() / 3.6;
+            state.smoothedSpeedMps += SPEED_SMOOTHING * (reportedMps - state.smoothedSpeedMps);
+        }
+        state.distanceAlongRoute = current.getRouteMatch().distanceAlongRoute();
+
+        LocalDateTime fixTime = current.getLastLocationUpdate() != null ? current.getLastLocationUpdate() : LocalDateTime.now();
+        double speed = Math.max(state.smoothedSpeedMps, MIN_SPEED_MPS);
+
+        List<Arrival> next = new ArrayList<>(STOPS_AHEAD);
+        for (RouteGeometry.RouteStopPoint stop : geometry.getStops()) {
+            if (stop.stopId() == null || stop.distanceAlongRoute() <= state.distanceAlongRoute) {
+                continue;
+            }
+            double remaining = stop.distanceAlongRoute() - state.distanceAlongRoute;
+            LocalDateTime eta = fixTime.plusNanos((long) (remaining / speed * 1_000_000_000L));
+            next.add(new Arrival(stop.stopId(), current.getId(), current.getBusNumber(),
+                    current.getLineCode(), eta, remaining));
+            if (next.size() == STOPS_AHEAD) {
+                break;
+            }
+        }
+
+        unpublish(state.published);
+        for (Arrival arrival : next) {
+            arrivalsByStop.computeIfAbsent(arrival.stopId(), s -> new ConcurrentSkipListSet<>(BY_ETA)).add(arrival);
+        }
+        state.published = next;
+    }
+
+    /**
+     * Upcoming arrivals at a stop, soonest first. Reads the head of a presorted table.
+     */
+    public List<Arrival> getArrivals(String stopId, int limit) {
+        ConcurrentSkipListSet<Arrival> table = arrivalsByStop.get(stopId);
+        if (table == null) {
+            return List.of();
+        }
+        // Buses that stopped reporting leave their last predictions behind; skip them once well overdue
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(EXPIRED_AFTER_SECONDS);
+        List<Arrival> result = new ArrayList<>(limit);
+        for (Arrival arrival : table) {
+            if (arrival.expectedAt().isBefore(cutoff)) {
+                continue;
+            }
+            result.add(arrival);
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private void unpublish(List<Arrival> arrivals) {
+        for (Arrival arrival : arrivals) {
+            Set<Arrival> table = arrivalsByStop.get(arrival.stopId());
+            if (table != null) {
+                table.remove(arrival);
+            }
+        }
+    }
+}
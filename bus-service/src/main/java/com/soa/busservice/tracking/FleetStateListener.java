@@ -0,0 +1,12 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+
+/**
+ * Notified by {@link FleetStateStore} on every snapshot change, in write order.
+ * {@code previous} is null when a bus appears, {@code current} is null when it is removed.
+ * Implementations run under the store's write lock and must stay cheap.
+ */
+public interface FleetStateListener {
+    void onBusChanged(BusResponse previous, BusResponse current);
+}
@@ -0,0 +1,245 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.event.BusLocationEvent;
+import com.soa.busservice.model.Status;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Live, in-memory view of the fleet used to answer read endpoints without touching the database.
+ * The store never modifies a snapshot once published: it keeps its own copy of what it is given, and
+ * every change replaces the bus entry with a fresh copy, so readers never observe a half-applied
+ * update. Snapshots handed out are shared and must be treated as read-only. Writes are serialized,
+ * reads are lock-free.
+ * Derived indexes subscribe as {@link FleetStateListener}s and are updated under the same write lock.
+ * Positions are map-matched onto the bus's route before a snapshot is published.
+ * <p>
+ * All indexes are ordered by bus number (unique), which gives stable listings and
+ * lets pages resume from the last bus number seen (keyset pagination).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FleetStateStore {
+
+    private final List<FleetStateListener> listeners;
+    private final MapMatcher mapMatcher;
+
+    private final Map<UUID, BusResponse> buses = new ConcurrentHashMap<>();
+    private final NavigableMap<String, UUID> byNumber = new ConcurrentSkipListMap<>();
+    private final Map<Status, NavigableMap<String, UUID>> byStatus = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<String, UUID>> byLine = new ConcurrentHashMap<>();
+
+    public record Page(List<BusResponse> items, String lastKey, boolean hasMore) {}
+
+    public synchronized void loadAll(Collection<BusResponse> snapshot) {
+        new ArrayList<>(buses.keySet()).forEach(this::remove);
+        snapshot.forEach(this::put);
+        log.info("Fleet state loaded with {} buses", buses.size());
+    }
+
+    /**
+     * Publishes a bus's attributes and returns the stored snapshot. Live positions usually reach the
+     * store before the database row, so the position given is only taken when it is not older than
+     * the one already known.
+     */
+    public synchronized BusResponse put(BusResponse bus) {
+        BusResponse previous = buses.get(bus.getId());
+        BusResponse snapshot = copyOf(bus);
+        if (previous != null && isNewerFix(previous.getLastLocationUpdate(), bus.getLastLocationUpdate())) {
+            snapshot.setLatitude(previous.getLatitude());
+            snapshot.setLongitude(previous.getLongitude());
+            snapshot.setSpeed(previous.getSpeed());
+            snapshot.setHeading(previous.getHeading());
+            snapshot.setLastLocationUpdate(previous.getLastLocationUpdate());
+        }
+        snapshot.setRouteMatch(mapMatcher.match(snapshot, previous));
+        buses.put(snapshot.getId(), snapshot);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(snapshot);
+        notifyListeners(previous, snapshot);
+        return snapshot;
+    }
+
+    public synchronized void remove(UUID busId) {
+        BusResponse previous = buses.remove(busId);
+        if (previous != null) {
+            unindex(previous);
+            notifyListeners(previous, null);
+        }
+    }
+
+    /**
+     * Applies a location event to the matching snapshot. Events not newer than the
+     * last known fix are ignored so out-of-order or repeated delivery cannot move a bus backwards.
+     */
+    public synchronized boolean applyLocation(BusLocationEvent event) {
+        UUID busId = UUID.fromString(event.getBusId());
+        BusResponse current = buses.get(busId);
+        if (current == null) {
+            return false;
+        }
+
+        LocalDateTime fixTime = event.getTimestamp() != null ? event.getTimestamp() : LocalDateTime.now();
+        if (current.getLastLocationUpdate() != null && !fixTime.isAfter(current.getLastLocationUpdate())) {
+            return false;
+        }
+
+        BusResponse updated = copyOf(current);
+        updated.setLatitude(event.getLatitude());
+        updated.setLongitude(event.getLongitude());
+        updated.setSpeed(event.getSpeed());
+        updated.setHeading(event.getHeading());
+        updated.setLastLocationUpdate(fixTime);
+        updated.setRouteMatch(mapMatcher.match(updated, current));
+        buses.put(busId, updated);
+        notifyListeners(current, updated);
+        return true;
+    }
+
+    public Optional<BusResponse> get(UUID busId) {
+        return Optional.ofNullable(buses.get(busId));
+    }
+
+    public boolean containsBusNumber(String busNumber) {
+        return byNumber.containsKey(busNumber);
+    }
+
+    public List<BusResponse> getAll() {
+        return resolve(byNumber);
+    }
+
+    public List<BusResponse> getByStatus(Status status) {
+        return resolve(byStatus.get(status));
+    }
+
+    public List<BusResponse> getByLine(String lineCode) {
+        return resolve(byLine.get(lineCode));
+    }
+
+    public Page pageAll(String afterBusNumber, int limit) {
+        return page(byNumber, afterBusNumber, limit);
+    }
+
+    public Page pageByStatus(Status status, String afterBusNumber, int limit) {
+        return page(byStatus.get(status), afterBusNumber, limit);
+    }
+
+    public Page pageByLine(String lineCode, String afterBusNumber, int limit) {
+        return page(byLine.get(lineCode), afterBusNumber, limit);
+    }
+
+    public int size() {
+        return buses.size();
+    }
+
+    private Page page(NavigableMap<String, UUID> index, String afterBusNumber, int limit) {
+        if (index == null) {
+            return new Page(List.of(), null, false);
+        }
+        SortedMap<String, UUID> tail = afterBusNumber != null ? index.tailMap(afterBusNumber, false) : index;
+
+        List<BusResponse> items = new ArrayList<>(limit);
+        String lastKey = null;
+        boolean hasMore = false;
+        for (Map.Entry<String, UUID> entry : tail.entrySet()) {
+            if (items.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            BusResponse bus = buses.get(entry.getValue());
+            if (bus != null) {
+                items.add(bus);
+                lastKey = entry.getKey();
+            }
+        }
+        return new Page(items, lastKey, hasMore);
+    }
+
+    private void notifyListeners(BusResponse previous, BusResponse current) {
+        for (FleetStateListener listener : listeners) {
+            try {
+                listener.onBusChanged(previous, current);
+            } catch (Exception e) {
+                log.error("Fleet state listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    private List<BusResponse> resolve(NavigableMap<String, UUID> index) {
+        if (index == null) {
+            return List.of();
+        }
+        List<BusResponse> result = new ArrayList<>(index.size());
+        for (UUID id : index.values()) {
+            BusResponse bus = buses.get(id);
+            if (bus != null) {
+                result.add(bus);
+            }
+        }
+        return result;
+    }
+
+    private void index(BusResponse bus) {
+        byNumber.put(bus.getBusNumber(), bus.getId());
+        if (bus.getStatus() != null) {
+            byStatus.computeIfAbsent(bus.getStatus(), s -> new ConcurrentSkipListMap<>())
+                    .put(bus.getBusNumber(), bus.getId());
+        }
+        if (bus.getLineCode() != null) {
+            byLine.computeIfAbsent(bus.getLineCode(), l -> new ConcurrentSkipListMap<>())
+                    .put(bus.getBusNumber(), bus.getId());
+        }
+    }
+
+    private void unindex(BusResponse bus) {
+        byNumber.remove(bus.getBusNumber());
+        if (bus.getStatus() != null) {
+            Map<String, UUID> ids = byStatus.get(bus.getStatus());
+            if (ids != null) {
+                ids.remove(bus.getBusNumber());
+            }
+        }
+        if (bus.getLineCode() != null) {
+            Map<String, UUID> ids = byLine.get(bus.getLineCode());
+            if (ids != null) {
+                ids.remove(bus.getBusNumber());
+                if (ids.isEmpty()) {
+                    byLine.remove(bus.getLineCode());
+                }
+            }
+        }
+    }
+
+    private static boolean isNewerFix(LocalDateTime known, LocalDateTime given) {
+        return known != null && (given == null || known.isAfter(given));
+    }
+
+    private BusResponse copyOf(BusResponse bus) {
+        BusResponse copy = new BusResponse(
+                bus.getId(),
+                bus.getBusNumber(),
+                bus.getLineCode(),
+                bus.getCapacity(),
+                bus.getStatus(),
+                bus.getLatitude(),
+                bus.getLongitude(),
+                bus.getSpeed(),
+                bus.getHeading(),
+                bus.getLastLocationUpdate(),
+                bus.getCreatedAt(),
+                bus.getUpdatedAt()
+        );
+        copy.setRouteMatch(bus.getRouteMatch());
+        return copy;
+    }
+}
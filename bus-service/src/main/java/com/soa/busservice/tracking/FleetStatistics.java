@@ -0,0 +1,203 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.model.Status;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Fleet aggregates maintained incrementally from snapshot diffs: each change subtracts the
+ * previous snapshot's contribution and adds the new one, so every figure is O(1) to read.
+ * Staleness is tracked with a queue ordered by last fix time; the sweeper only pops the
+ * entries that just expired instead of scanning the fleet.
+ */
+@Component
+@RequiredArgsConstructor
+public class FleetStatistics implements FleetStateListener {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${fleet.stats.stale-after-seconds:60}")
+    private long staleAfterSeconds;
+
+    private final AtomicLong total = new AtomicLong();
+    private final Map<Status, AtomicLong> byStatus = new EnumMap<>(Status.class);
+    private final Map<String, LineStats> byLine = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListSet<FixStamp> fixQueue = new ConcurrentSkipListSet<>();
+    private final Map<UUID, FixStamp> lastFix = new ConcurrentHashMap<>();
+    private final Set<UUID> stale = ConcurrentHashMap.newKeySet();
+
+    public static final class LineStats {
+        private final AtomicLong buses = new AtomicLong();
+        private final DoubleAdder speedSum = new DoubleAdder();
+        private final AtomicLong speedSamples = new AtomicLong();
+        private final List<Meter> gauges = new ArrayList<>(2);
+
+        public long getBuses() {
+            return buses.get();
+        }
+
+        public double getAverageSpeed() {
+            long samples = speedSamples.get();
+            return samples == 0 ? 0.0 : speedSum.sum() / samples;
+        }
+    }
+
+    private record FixStamp(long epochMillis, UUID busId) implements Comparable<FixStamp> {
+        @Override
+        public int compareTo(FixStamp other) {
+            int byTime = Long.compare(epochMillis, other.epochMillis);
+            return byTime != 0 ? byTime : busId.compareTo(other.busId);
+        }
+    }
+
+    @PostConstruct
+    public void registerGauges() {
+        for (Status status : Status.values()) {
+            AtomicLong counter = new AtomicLong();
+            byStatus.put(status, counter);
+            Gauge.builder("bus.fleet.buses", counter, AtomicLong::get)
+                    .description("Buses per status")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("bus.fleet.buses.total", total, AtomicLong::get)
+                .description("Buses in the fleet")
+                .register(meterRegistry);
+        Gauge.builder("bus.fleet.gps.stale", stale, Set::size)
+                .description("Buses whose last GPS fix is older than the staleness threshold")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void onBusChanged(BusResponse previous, BusResponse current) {
+        if (previous != null) {
+            contribute(previous, -1);
+        }
+        if (current != null) {
+            contribute(current, 1);
+        }
+        if (previous != null && previous.getLineCode() != null) {
+            releaseLineIfEmpty(previous.getLineCode());
+        }
+
+        UUID busId = current != null ? current.getId() : previous.getId();
+        LocalDateTime fixTime = current != null ? current.getLastLocationUpdate() : null;
+        FixStamp old = lastFix.get(busId);
+        long fixMillis = fixTime != null ? fixTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+        if (old != null && old.epochMillis() == fixMillis) {
+            return;
+        }
+        if (old != null) {
+            fixQueue.remove(old);
+            lastFix.remove(busId);
+        }
+        stale.remove(busId);
+        if (fixTime != null) {
+            FixStamp stamp = new FixStamp(fixMillis, busId);
+            lastFix.put(busId, stamp);
+            if (fixMillis < staleCutoff()) {
+                stale.add(busId);
+            } else {
+                fixQueue.add(stamp);
+            }
+        }
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public synchronized void expireStaleFixes() {
+        long cutoff = staleCutoff();
+        while (!fixQueue.isEmpty()) {
+            FixStamp head = fixQueue.first();
+            if (head.epochMillis() >= cutoff) {
+                break;
+            }
+            fixQueue.remove(head);
+            stale.add(head.busId());
+        }
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getCount(Status status) {
+        AtomicLong counter = byStatus.get(status);
+        return counter != null ? counter.get() : 0;
+    }
+
+    public Map<String, LineStats> getLines() {
+        return Collections.unmodifiableMap(byLine);
+    }
+
+    public long getStaleCount() {
+        return stale.size();
+    }
+
+    public long getWithoutFixCount() {
+        return total.get() - lastFix.size();
+    }
+
+    public long getStaleAfterSeconds() {
+        return staleAfterSeconds;
+    }
+
+    private void contribute(BusResponse bus, int sign) {
+        total.addAndGet(sign);
+        if (bus.getStatus() != null) {
+            byStatus.get(bus.getStatus()).addAndGet(sign);
+        }
+        if (bus.getLineCode() != null) {
+            LineStats line = byLine.computeIfAbsent(bus.getLineCode(), this::registerLine);
+            line.buses.addAndGet(sign);
+            if (bus.getSpeed() != null) {
+                line.speedSum.add(sign * bus.getSpeed());
+                line.speedSamples.addAndGet(sign);
+            }
+        }
+    }
+
+    private LineStats registerLine(String lineCode) {
+        LineStats line = new LineStats();
+        line.gauges.add(Gauge.builder("bus.fleet.line.buses", line, LineStats::getBuses)
+                .description("Buses assigned to a line")
+                .tag("line", lineCode)
+                .register(meterRegistry));
+        line.gauges.add(Gauge.builder("bus.fleet.line.speed.avg", line, LineStats::getAverageSpeed)
+                .description("Average reported speed on a line (km/h)")
+                .tag("line", lineCode)
+                .register(meterRegistry));
+        return line;
+    }
+
+    /**
+     * Drops a line and its gauges once its last bus has left, so retired or renamed lines do not
+     * keep reporting zero forever.
+     */
+    private void releaseLineIfEmpty(String lineCode) {
+        LineStats line = byLine.get(lineCode);
+        if (line != null && line.buses.get() == 0) {
+            byLine.remove(lineCode);
+            line.gauges.forEach(meterRegistry::remove);
+        }
+    }
+
+    private long staleCutoff() {
+        return System.currentTimeMillis() - staleAfterSeconds * 1000;
+    }
+}
@@ -0,0 +1,24 @@
+package com.soa.busservice.tracking;
+
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_000.0;
+    public static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    private GeoUtils() {
+    }
+
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_METERS * c;
+    }
+
+    public static double metersPerDegreeLon(double latitude) {
+        return METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(latitude));
+    }
+}
@@ -0,0 +1,75 @@
+package com.soa.busservice.tracking;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latency of a GPS fix from the moment it enters bus-service to the WebSocket frame that carries it,
+ * split per stage:
+ * <ul>
+ *     <li>ingest: origin (HTTP request, binary gateway or simulator) to Kafka produce, including the write-behind queue</li>
+ *     <li>kafka: produce to consumption by the WebSocket bridge</li>
+ *     <li>websocket: bridge consumption to the end of the broadcast</li>
+ *     <li>total: origin to the end of the broadcast</li>
+ * </ul>
+ * Stage boundaries are wall-clock stamps from this node, carried in the event and in Kafka headers.
+ * The slowest bus seen per stage is logged every minute, to point at the vehicles behind a bad tail.
+ */
+@Component
+@Slf4j
+public class GpsLatencyMetrics {
+
+    public enum Stage {
+        INGEST, KAFKA, WEBSOCKET, TOTAL
+    }
+
+    private record Sample(String busNumber, long millis) {}
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final Map<Stage, AtomicReference<Sample>> slowest = new EnumMap<>(Stage.class);
+
+    public GpsLatencyMetrics(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("bus.gps.latency")
+                    .description("Time from GPS fix ingestion to WebSocket delivery, per stage")
+                    .tag("stage", stage.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofMinutes(1))
+                    .register(meterRegistry));
+            slowest.put(stage, new AtomicReference<>());
+        }
+    }
+
+    public void record(Stage stage, String busNumber, long fromMillis, long toMillis) {
+        long millis = Math.max(0, toMillis - fromMillis);
+        timers.get(stage).record(Duration.ofMillis(millis));
+        AtomicReference<Sample> worst = slowest.get(stage);
+        Sample current = worst.get();
+        while (current == null || millis > current.millis()) {
+            if (worst.compareAndSet(current, new Sample(busNumber, millis))) {
+                break;
+            }
+            current = worst.get();
+        }
+    }
+
+    @Scheduled(fixedRate = 60_000)
+    public void logSlowest() {
+        for (Stage stage : Stage.values()) {
+            Sample sample = slowest.get(stage).getAndSet(null);
+            if (sample != null) {
+                log.info("Slowest GPS fix in the last minute, stage {}: bus {} at {} ms",
+                        stage.name().toLowerCase(), sample.busNumber(), sample.millis());
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.event.BusAlertEvent.Type;
+import com.soa.busservice.model.Status;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Live headways per line. Active, map-matched buses are kept per line in a tree ordered by distance
+ * along the route, so a position change is a remove and an insert (O(log n)) and only the buses whose
+ * leader changed are re-evaluated: the moved bus and its old and new followers. A bus's headway is the
+ * gap to the bus directly ahead; bunching and gap alerts are raised on the following bus.
+ */
+@Component
+@RequiredArgsConstructor
+public class HeadwayMonitor implements FleetStateListener {
+
+    // Dwell times and traffic lights make instantaneous 0 km/h readings meaningless for headways
+    private static final double MIN_SPEED_MPS = 4.0;
+
+    private final AlertPublisher alertPublisher;
+
+    @Value("${fleet.headway.bunching-meters:200}")
+    private double bunchingMeters;
+
+    @Value("${fleet.headway.gap-meters:4000}")
+    private double gapMeters;
+
+    private final Map<String, TreeMap<Position, Tracked>> lines = new HashMap<>();
+    private final Map<UUID, Tracked> tracked = new HashMap<>();
+
+    public record Headway(BusResponse bus, double distanceAlongRoute, BusResponse leader,
+                          Double gapMeters, Long headwaySeconds, boolean bunched, boolean gap) {}
+
+    private record Position(double distanceAlongRoute, UUID busId) implements Comparable<Position> {
+        @Override
+        public int compareTo(Position other) {
+            int byDistance = Double.compare(distanceAlongRoute, other.distanceAlongRoute);
+            return byDistance != 0 ? byDistance : busId.compareTo(other.busId);
+        }
+    }
+
+    private static final class Tracked {
+        BusResponse bus;
+        String lineCode;
+        Position position;
+        boolean bunched;
+        boolean gap;
+    }
+
+    @Override
+    public synchronized void onBusChanged(BusResponse previous, BusResponse current) {
+        UUID busId = current != null ? current.getId() : previous.getId();
+        Tracked entry = tracked.get(busId);
+        boolean trackable = current != null && current.getStatus() == Status.ACTIVE && current.getRouteMatch() != null;
+
+        if (entry != null && trackable && entry.lineCode.equals(current.getLineCode())
+                && entry.position.distanceAlongRoute() == current.getRouteMatch().distanceAlongRoute()) {
+            entry.bus = current; // nothing that affects ordering changed
+            return;
+        }
+
+        if (entry != null) {
+            TreeMap<Position, Tracked> line = lines.get(entry.lineCode);
+            line.remove(entry.position);
+            Map.Entry<Position, Tracked> oldFollower = line.lowerEntry(entry.position);
+            if (oldFollower != null) {
+                evaluate(line, oldFollower.getValue());
+            }
+            if (line.isEmpty()) {
+                lines.remove(entry.lineCode);
+            }
+        }
+
+        if (!trackable) {
+            if (entry != null) {
+                tracked.remove(busId);
+                setBunched(entry, false, null);
+                setGap(entry, false, null);
+            }
+            return;
+        }
+
+        if (entry == null) {
+            entry = new Tracked();
+            tracked.put(busId, entry);
+        }
+        entry.bus = current;
+        entry.lineCode = current.getLineCode();
+        entry.position = new Position(current.getRouteMatch().distanceAlongRoute(), busId);
+
+        TreeMap<Position, Tracked> line = lines.computeIfAbsent(entry.lineCode, code -> new TreeMap<>());
+        line.put(entry.position, entry);
+        evaluate(line, entry);
+        Map.Entry<Position, Tracked> newFollower = line.lowerEntry(entry.position);
+        if (newFollower != null) {
+            evaluate(line, newFollower.getValue());
+        }
+    }
+
+    /**
+     * Headways on a line, from the bus furthest along the route to the last one.
+     */
+    public synchronized List<Headway> getHeadways(String lineCode) {
+        TreeMap<Position, Tracked> line = lines.get(lineCode);
+        if (line == null) {
+            return List.of();
+        }
+        List<Headway> result = new ArrayList<>(line.size());
+        Tracked leader = null;
+        for (Tracked entry : line.descendingMap().values()) {
+            Double gap = leader != null ? leader.position.distanceAlongRoute() - entry.position.distanceAlongRoute() : null;
+            result.add(new Headway(entry.bus, entry.position.distanceAlongRoute(),
+                    leader != null ? leader.bus : null, gap,
+                    gap != null ? headwaySeconds(entry.bus, gap) : null,
+                    entry.bunched, entry.gap));
+            leader = entry;
+        }
+        return result;
+    }
+
+    private void evaluate(TreeMap<Position, Tracked> line, Tracked follower) {
+        Map.Entry<Position, Tracked> leader = line.higherEntry(follower.position);
+        if (leader == null) {
+            setBunched(follower, false, null);
+            setGap(follower, false, null);
+            return;
+        }
+        double gap = leader.getKey().distanceAlongRoute() - follower.position.distanceAlongRoute();
+        BusResponse ahead = leader.getValue().bus;
+        setBunched(follower, gap < bunchingMeters, ahead);
+        setGap(follower, gap > gapMeters, ahead);
+    }
+
+    private void setBunched(Tracked entry, boolean bunched, BusResponse ahead) {
+        if (entry.bunched == bunched) {
+            return;
+        }
+        entry.bunched = bunched;
+        alertPublisher.publish(entry.bus, Type.BUNCHING, bunched, bunched
+                ? "Bunched behind bus " + ahead.getBusNumber()
+                : "No longer bunched");
+    }
+
+    private void setGap(Tracked entry, boolean gap, BusResponse ahead) {
+        if (entry.gap == gap) {
+            return;
+        }
+        entry.gap = gap;
+        alertPublisher.publish(entry.bus, Type.HEADWAY_GAP, gap, gap
+                ? String.format("More than %.0f m behind bus %s", gapMeters, ahead.getBusNumber())
+                : "Headway gap closed");
+    }
+
+    private static long headwaySeconds(BusResponse bus, double gapMeters) {
+        double speed = bus.getSpeed() != null ? bus.getSpeed() / 3.6 : 0;
+        return Math.round(gapMeters / Math.max(speed, MIN_SPEED_MPS));
+    }
+}
@@ -0,0 +1,39 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.dto.RouteMatch;
+import com.soa.busservice.simulation.RouteGeometry;
+import com.soa.busservice.simulation.RouteGeometryCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Snaps bus positions onto their line's route. Runs inline on every fix applied to the fleet state,
+ * so it only does a few grid lookups per fix (see {@link RouteGeometry#match}).
+ */
+@Component
+@RequiredArgsConstructor
+public class MapMatcher {
+
+    private final RouteGeometryCache routeCache;
+
+    /**
+     * @param bus      the bus with its new raw position
+     * @param previous the bus's previous snapshot, used to disambiguate routes that pass the same place twice
+     * @return the match, or null when the bus has no position or its route geometry is unknown
+     */
+    public RouteMatch match(BusResponse bus, BusResponse previous) {
+        if (bus.getLatitude() == null || bus.getLongitude() == null) {
+            return null;
+        }
+        RouteGeometry geometry = routeCache.getGeometry(bus.getLineCode());
+        if (geometry == null) {
+            return null;
+        }
+        double hint = -1;
+        if (previous != null && previous.getRouteMatch() != null && bus.getLineCode().equals(previous.getLineCode())) {
+            hint = previous.getRouteMatch().distanceAlongRoute();
+        }
+        return geometry.match(bus.getLatitude(), bus.getLongitude(), hint);
+    }
+}
@@ -0,0 +1,165 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Uniform lat/lon grid over current bus positions, updated incrementally from fleet state changes.
+ * A bus only touches the cell sets when it crosses a cell boundary; otherwise an update is a single map put.
+ */
+@Component
+public class SpatialIndex implements FleetStateListener {
+
+    // ~555 m north-south, ~460 m east-west around Rabat: a "500 m around me" query touches a 3x3 block
+    private static final double CELL_DEGREES = 0.005;
+    private static final int MAX_BBOX_CELLS = 40_000;
+
+    private final Map<Long, Set<UUID>> cells = new ConcurrentHashMap<>();
+    private final Map<UUID, Position> positions = new ConcurrentHashMap<>();
+
+    private record Position(double latitude, double longitude, long cell) {}
+
+    public record Hit(UUID busId, double distanceMeters) {}
+
+    @Override
+    public void onBusChanged(BusResponse previous, BusResponse current) {
+        if (current == null || current.getLatitude() == null || current.getLongitude() == null) {
+            UUID busId = current != null ? current.getId() : previous.getId();
+            Position removed = positions.remove(busId);
+            if (removed != null) {
+                removeFromCell(removed.cell(), busId);
+            }
+            return;
+        }
+
+        double lat = current.getLatitude();
+        double lon = current.getLongitude();
+        long cell = cellKey(row(lat), column(lon));
+        Position old = positions.put(current.getId(), new Position(lat, lon, cell));
+
+        if (old == null || old.cell() != cell) {
+            if (old != null) {
+                removeFromCell(old.cell(), current.getId());
+            }
+            cells.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(current.getId());
+        }
+    }
+
+    /**
+     * k-nearest buses within {@code radiusMeters}, closest first.
+     * Grid rings are visited outwards until no unvisited cell can beat the current k-th hit.
+     */
+    public List<Hit> nearest(double lat, double lon, double radiusMeters, int limit) {
+        double cellMeters = CELL_DEGREES * Math.min(GeoUtils.METERS_PER_DEGREE_LAT, GeoUtils.metersPerDegreeLon(lat));
+        int maxRing = (int) Math.ceil(radiusMeters / cellMeters) + 1;
+        int centerRow = row(lat);
+        int centerColumn = column(lon);
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble(Hit::distanceMeters).reversed());
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double ringMinDistance = Math.max(0, ring - 1) * cellMeters;
+            if (ringMinDistance > radiusMeters) {
+                break;
+            }
+            if (best.size() == limit && ringMinDistance > best.peek().distanceMeters()) {
+                break;
+            }
+
+            // Only the border of the ring; inner cells were visited already
+            if (ring == 0) {
+                collect(centerRow, centerColumn, lat, lon, radiusMeters, limit, best);
+                continue;
+            }
+            for (int c = centerColumn - ring; c <= centerColumn + ring; c++) {
+                collect(centerRow - ring, c, lat, lon, radiusMeters, limit, best);
+                collect(centerRow + ring, c, lat, lon, radiusMeters, limit, best);
+            }
+            for (int r = centerRow - ring + 1; r < centerRow + ring; r++) {
+                collect(r, centerColumn - ring, lat, lon, radiusMeters, limit, best);
+                collect(r, centerColumn + ring, lat, lon, radiusMeters, limit, best);
+            }
+        }
+
+        List<Hit> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Hit::distanceMeters));
+        return result;
+    }
+
+    private void collect(int row, int column, double lat, double lon, double radiusMeters, int limit,
+                         PriorityQueue<Hit> best) {
+        Set<UUID> ids = cells.get(cellKey(row, column));
+        if (ids == null) {
+            return;
+        }
+        for (UUID id : ids) {
+            Position p = positions.get(id);
+            if (p == null) {
+                continue;
+            }
+            double d = GeoUtils.distanceMeters(lat, lon, p.latitude(), p.longitude());
+            if (d > radiusMeters) {
+                continue;
+            }
+            if (best.size() < limit) {
+                best.add(new Hit(id, d));
+            } else if (d < best.peek().distanceMeters()) {
+                best.poll();
+                best.add(new Hit(id, d));
+            }
+        }
+    }
+
+    public List<UUID> within(double minLat, double minLon, double maxLat, double maxLon) {
+        int minRow = row(minLat);
+        int maxRow = row(maxLat);
+        int minColumn = column(minLon);
+        int maxColumn = column(maxLon);
+        if ((long) (maxRow - minRow + 1) * (maxColumn - minColumn + 1) > MAX_BBOX_CELLS) {
+            throw new IllegalArgumentException("Bounding box is too large");
+        }
+
+        List<UUID> result = new ArrayList<>();
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minColumn; c <= maxColumn; c++) {
+                Set<UUID> ids = cells.get(cellKey(r, c));
+                if (ids == null) {
+                    continue;
+                }
+                for (UUID id : ids) {
+                    Position p = positions.get(id);
+                    if (p != null && p.latitude() >= minLat && p.latitude() <= maxLat
+                            && p.longitude() >= minLon && p.longitude() <= maxLon) {
+                        result.add(id);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void removeFromCell(long cell, UUID busId) {
+        Set<UUID> ids = cells.get(cell);
+        if (ids != null) {
+            ids.remove(busId);
+            if (ids.isEmpty()) {
+                cells.remove(cell, ids);
+            }
+        }
+    }
+
+    private static int row(double lat) {
+        return (int) Math.floor(lat / CELL_DEGREES);
+    }
+
+    private static int column(double lon) {
+        return (int) Math.floor(lon / CELL_DEGREES);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
@@ -0,0 +1,157 @@
+package com.soa.busservice.service;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.dto.LocationBatchResponse;
+import com.soa.busservice.dto.LocationBatchResponse.RejectedFix;
+import com.soa.busservice.dto.LocationFix;
+import com.soa.busservice.event.BusLocationEvent;
+import com.soa.busservice.kafka.KafkaProducerService;
+import com.soa.busservice.model.Status;
+import com.soa.busservice.service.LocationIngestionService.PendingFix;
+import com.soa.busservice.tracking.FleetStateStore;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The fleet state, Kafka and the database are replaced by recorders. The writer thread is never
+ * started, so {@code stop()} flushes everything queued as a single chunk.
+ */
+class LocationIngestionServiceTest {
+
+    private static final LocalDateTime LAST_FIX = LocalDateTime.now().minusMinutes(10);
+
+    private final UUID busA = UUID.randomUUID();
+    private final UUID busB = UUID.randomUUID();
+
+    private final Map<UUID, BusResponse> fleet = new HashMap<>();
+    private final List<BusLocationEvent> published = new ArrayList<>();
+    private final List<BusLocationEvent> applied = new ArrayList<>();
+    private final List<Object[]> rows = new ArrayList<>();
+    private LocationIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        fleet.put(busA, bus(busA, "A1"));
+        fleet.put(busB, bus(busB, "B1"));
+        service = new LocationIngestionService(
+                new FleetStateStore(List.of(), null) {
+                    @Override
+                    public Optional<BusResponse> get(UUID busId) {
+                        return Optional.ofNullable(fleet.get(busId));
+                    }
+
+                    @Override
+                    public boolean applyLocation(BusLocationEvent event) {
+                        applied.add(event);
+                        return true;
+                    }
+                },
+                new KafkaProducerService(null, null) {
+                    @Override
+                    public void publishLocationUpdate(BusLocationEvent event) {
+                        published.add(event);
+                    }
+                },
+                new JdbcTemplate() {
+                    @Override
+                    public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+                        rows.addAll(batchArgs);
+                        return new int[batchArgs.size()];
+                    }
+                },
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(service, "writer", new Thread(() -> {}));
+    }
+
+    @Test
+    void rejectsFixesNotNewerThanTheLastKnownOne() {
+        assertEquals("Fix is not newer than the last known fix", service.offer(fix(busA, LAST_FIX)));
+        assertEquals("Fix is not newer than the last known fix", service.offer(fix(busA, LAST_FIX.minusMinutes(1))));
+
+        assertNull(service.offer(fix(busA, LAST_FIX.plusSeconds(5))));
+        assertEquals("Fix is not newer than the last known fix", service.offer(fix(busA, LAST_FIX.plusSeconds(5))));
+        assertEquals("Fix is not newer than the last known fix", service.offer(fix(busA, LAST_FIX.plusSeconds(4))));
+        assertEquals(1, service.getQueueSize());
+    }
+
+    @Test
+    void rejectsUnknownBusesAndFixesFromTheFuture() {
+        UUID unknown = UUID.randomUUID();
+
+        assertEquals("Bus not found with ID: " + unknown, service.offer(fix(unknown, LAST_FIX.plusSeconds(5))));
+        assertEquals("Timestamp is in the future", service.offer(fix(busA, LocalDateTime.now().plusMinutes(5))));
+        assertEquals(0, service.getQueueSize());
+    }
+
+    @Test
+    void sortsEachBusFixesBeforeCheckingThem() {
+        LocationBatchResponse response = service.submitBatch(List.of(
+                locationFix(busA, LAST_FIX.plusSeconds(20)),
+                locationFix(busB, LAST_FIX.plusSeconds(10)),
+                locationFix(busA, LAST_FIX.plusSeconds(10)),
+                locationFix(busA, LAST_FIX.minusSeconds(10)),
+                locationFix(busA, null)));
+
+        assertEquals(3, response.getAccepted());
+        assertEquals(List.of(3, 4), response.getRejections().stream().map(RejectedFix::getIndex).toList());
+        assertEquals("Fix is not newer than the last known fix", response.getRejections().get(0).getReason());
+        assertEquals("Device timestamp is required", response.getRejections().get(1).getReason());
+    }
+
+    @Test
+    void publishesEveryFixButAppliesOnlyTheNewestPerBus() throws InterruptedException {
+        service.submitBatch(List.of(
+                locationFix(busA, LAST_FIX.plusSeconds(10)),
+                locationFix(busB, LAST_FIX.plusSeconds(10)),
+                locationFix(busA, LAST_FIX.plusSeconds(30)),
+                locationFix(busA, LAST_FIX.plusSeconds(20))));
+
+        service.stop();
+
+        assertEquals(List.of(LAST_FIX.plusSeconds(10), LAST_FIX.plusSeconds(20), LAST_FIX.plusSeconds(30),
+                LAST_FIX.plusSeconds(10)), published.stream().map(BusLocationEvent::getTimestamp).toList());
+        assertEquals(List.of(busA + " " + LAST_FIX.plusSeconds(30), busB + " " + LAST_FIX.plusSeconds(10)),
+                applied.stream().map(event -> event.getBusId() + " " + event.getTimestamp()).toList());
+        assertEquals(2, rows.size());
+        assertEquals(busA, rows.get(0)[6]);
+    }
+
+    @Test
+    void dropsFixesForBusesDeletedBeforeTheFlush() throws InterruptedException {
+        service.offer(fix(busA, LAST_FIX.plusSeconds(10)));
+        fleet.remove(busA);
+
+        service.stop();
+
+        assertEquals(List.of(), published);
+        assertEquals(List.of(), applied);
+        assertEquals(List.of(), rows);
+    }
+
+    private static BusResponse bus(UUID id, String busNumber) {
+        return new BusResponse(id, busNumber, "L1", 60, Status.ACTIVE,
+                34.0, -6.8, 0.0, 0.0, LAST_FIX, null, null);
+    }
+
+    private static PendingFix fix(UUID busId, LocalDateTime timestamp) {
+        return new PendingFix(busId, 34.001, -6.801, 30.0, 90.0, timestamp, System.currentTimeMillis());
+    }
+
+    private static LocationFix locationFix(UUID busId, LocalDateTime timestamp) {
+        return new LocationFix(busId, 34.001, -6.801, 30.0, 90.0, timestamp);
+    }
+}
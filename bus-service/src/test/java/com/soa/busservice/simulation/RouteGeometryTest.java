@@ -0,0 +1,146 @@
+package com.soa.busservice.simulation;
+
+import com.soa.busservice.dto.RouteMatch;
+import com.soa.busservice.tracking.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Grid cells are 0.002 degrees (about 185 m east-west here); a segment whose bounding box covers more
+ * than 64 cells is left out of the grid.
+ */
+class RouteGeometryTest {
+
+    @Test
+    void snapsAFixOntoTheClosestSegment() {
+        RouteGeometry route = route(List.of(point(34.0, -6.8), point(34.01, -6.8)));
+
+        RouteMatch match = route.match(34.005, -6.8 + 20 / GeoUtils.metersPerDegreeLon(34.005), -1);
+
+        assertEquals(route.getLengthMeters() / 2, match.distanceAlongRoute(), 0.5);
+        assertEquals(20, match.offsetMeters(), 0.01);
+        assertEquals(-6.8, match.longitude(), 1e-9);
+        assertEquals(0, match.bearing(), 1e-6);
+    }
+
+    @Test
+    void examinesSegmentsTooLongForTheGridForEveryFix() {
+        // A diagonal across 15 x 15 cells, then a short segment about 100 m north-west of the fix, in its cell
+        RouteGeometry route = route(List.of(
+                point(34.000, -6.900), point(34.030, -6.870),
+                point(34.01564, -6.88577), point(34.01580, -6.88558)));
+
+        RouteMatch match = route.match(34.015, -6.88505, -1);
+
+        assertTrue(match.offsetMeters() < 5, "offset " + match.offsetMeters());
+        assertTrue(match.distanceAlongRoute() < route.getCumulativeDistance()[1]);
+    }
+
+    @Test
+    void agreesWithAFullScanWhereverTheFixIs() {
+        Random random = new Random(42);
+        List<double[]> path = new ArrayList<>();
+        double lat = 34.0;
+        double lon = -6.85;
+        for (int i = 0; i < 60; i++) {
+            path.add(point(lat, lon));
+            lat += (random.nextDouble() - 0.3) * 0.002;
+            lon += (random.nextDouble() - 0.5) * 0.004;
+        }
+        RouteGeometry route = route(path);
+
+        for (int i = 0; i < 2000; i++) {
+            // Mostly near the route, where the search stops early, some far enough to need the full scan
+            double spread = i % 10 == 0 ? 0.05 : 0.003;
+            double[] near = path.get(random.nextInt(path.size()));
+            double fixLat = near[0] + (random.nextDouble() - 0.5) * spread;
+            double fixLon = near[1] + (random.nextDouble() - 0.5) * spread;
+
+            RouteMatch match = route.match(fixLat, fixLon, -1);
+
+            assertEquals(closestOffset(path, fixLat, fixLon), match.offsetMeters(), 1e-6,
+                    "fix " + fixLat + ", " + fixLon);
+        }
+    }
+
+    @Test
+    void prefersThePassClosestToThePreviousPosition() {
+        RouteGeometry route = outAndBack();
+        double fixLat = 34.0045;
+        double fixLon = -6.79998; // 1.8 m from the way out, 2.8 m from the way back
+
+        double out = route.match(fixLat, fixLon, -1).distanceAlongRoute();
+        double back = route.match(fixLat, fixLon, 1500).distanceAlongRoute();
+
+        assertEquals(501, out, 1);
+        assertEquals(route.getLengthMeters() - 501, back, 1);
+    }
+
+    @Test
+    void ordersStopsByTheirPositionAlongTheRoute() {
+        List<double[]> path = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) {
+            path.add(point(34.0 + i * 0.001, -6.8)); // a vertex every 111 m
+        }
+        RouteGeometry route = new RouteGeometry(7L, "L1", "GOING", path, List.of(
+                new RouteGeometry.StopLocation("20", "Far", 34.0054, -6.79999),
+                new RouteGeometry.StopLocation("10", "Near", 34.002, -6.8)));
+
+        List<RouteGeometry.RouteStopPoint> stops = route.getStops();
+
+        assertEquals(List.of("10", "20"), stops.stream().map(RouteGeometry.RouteStopPoint::stopId).toList());
+        assertEquals(List.of(2, 1), stops.stream().map(RouteGeometry.RouteStopPoint::sequence).toList());
+        assertEquals(List.of(2, 5), stops.stream().map(RouteGeometry.RouteStopPoint::vertexIndex).toList());
+        assertEquals(0.0054 * GeoUtils.METERS_PER_DEGREE_LAT, stops.get(1).distanceAlongRoute(), 1);
+        assertEquals(34.0054, stops.get(1).latitude(), 1e-9);
+        assertTrue(route.isStopVertex(5));
+        assertEquals(0, route.distanceToNearestStop(stops.get(0).distanceAlongRoute()), 1e-9);
+    }
+
+    @Test
+    void doesNotMatchRoutesWithoutSegments() {
+        RouteGeometry route = route(List.of(point(34.0, -6.8)));
+
+        assertNull(route.match(34.0, -6.8, -1));
+    }
+
+    private static RouteGeometry route(List<double[]> path) {
+        return new RouteGeometry(1L, "L1", null, path, List.of());
+    }
+
+    // About 1 km north, then back south 5 m further east
+    private static RouteGeometry outAndBack() {
+        return route(List.of(point(34.0, -6.8), point(34.009, -6.8), point(34.009, -6.79995), point(34.0, -6.79995)));
+    }
+
+    private static double[] point(double lat, double lon) {
+        return new double[]{lat, lon};
+    }
+
+    /**
+     * Distance to the nearest segment in the same local equirectangular frame the matcher uses.
+     */
+    private static double closestOffset(List<double[]> path, double lat, double lon) {
+        double metersPerLon = GeoUtils.metersPerDegreeLon(lat);
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < path.size() - 1; i++) {
+            double ax = (path.get(i)[1] - lon) * metersPerLon;
+            double ay = (path.get(i)[0] - lat) * GeoUtils.METERS_PER_DEGREE_LAT;
+            double bx = (path.get(i + 1)[1] - lon) * metersPerLon;
+            double by = (path.get(i + 1)[0] - lat) * GeoUtils.METERS_PER_DEGREE_LAT;
+            double dx = bx - ax;
+            double dy = by - ay;
+            double lengthSq = dx * dx + dy * dy;
+            double t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSq));
+            best = Math.min(best, Math.hypot(ax + t * dx, ay + t * dy));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,128 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.dto.RouteMatch;
+import com.soa.busservice.event.BusAlertEvent;
+import com.soa.busservice.model.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Buses are placed on line L1 by distance along the route; bunching is under 200 m, a gap over 4000 m.
+ * Alerts are recorded as "busNumber TYPE raised|cleared".
+ */
+class HeadwayMonitorTest {
+
+    private final List<String> alerts = new ArrayList<>();
+    private HeadwayMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        monitor = new HeadwayMonitor(new AlertPublisher(null) {
+            @Override
+            public void publish(BusResponse bus, BusAlertEvent.Type type, boolean active, String message) {
+                alerts.add(bus.getBusNumber() + " " + type + (active ? " raised" : " cleared"));
+            }
+        });
+        ReflectionTestUtils.setField(monitor, "bunchingMeters", 200.0);
+        ReflectionTestUtils.setField(monitor, "gapMeters", 4000.0);
+    }
+
+    @Test
+    void ordersBusesFromTheFrontOfTheLine() {
+        move(null, bus("B1", "L1", 1000));
+        move(null, bus("B2", "L1", 3000));
+        move(null, bus("B3", "L1", 2000));
+
+        List<HeadwayMonitor.Headway> headways = monitor.getHeadways("L1");
+
+        assertEquals(List.of("B2", "B3", "B1"), headways.stream().map(h -> h.bus().getBusNumber()).toList());
+        assertNull(headways.get(0).leader());
+        assertNull(headways.get(0).gapMeters());
+        assertEquals("B2", headways.get(1).leader().getBusNumber());
+        assertEquals(1000, headways.get(1).gapMeters(), 1e-9);
+        assertEquals(250, headways.get(1).headwaySeconds()); // 1000 m at the 4 m/s floor
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    void raisesBunchingOnTheFollowerOnly() {
+        move(null, bus("B1", "L1", 1000));
+        move(null, bus("B2", "L1", 1150));
+
+        assertEquals(List.of("B1 BUNCHING raised"), alerts);
+        assertTrue(monitor.getHeadways("L1").get(1).bunched());
+        assertFalse(monitor.getHeadways("L1").get(0).bunched());
+    }
+
+    @Test
+    void reevaluatesTheOldFollowerWhenABusChangesLine() {
+        BusResponse leader = bus("B2", "L1", 1150);
+        move(null, bus("B1", "L1", 1000));
+        move(null, leader);
+        alerts.clear();
+
+        move(leader, bus(leader.getId(), "B2", "L2", 1150));
+
+        assertEquals(List.of("B1 BUNCHING cleared"), alerts);
+        assertEquals(List.of("B1"), monitor.getHeadways("L1").stream().map(h -> h.bus().getBusNumber()).toList());
+        assertEquals(List.of("B2"), monitor.getHeadways("L2").stream().map(h -> h.bus().getBusNumber()).toList());
+    }
+
+    @Test
+    void clearsAlertsWhenABusIsRemoved() {
+        BusResponse follower = bus("B1", "L1", 1000);
+        BusResponse middle = bus("B2", "L1", 1150);
+        move(null, follower);
+        move(null, middle);
+        move(null, bus("B3", "L1", 6000));
+        alerts.clear();
+
+        move(middle, null);
+        // B1 now follows B3 from 5000 m back
+        assertEquals(List.of("B1 BUNCHING cleared", "B1 HEADWAY_GAP raised", "B2 HEADWAY_GAP cleared"), alerts);
+        alerts.clear();
+
+        BusResponse inactive = bus(follower.getId(), "B1", "L1", 1000);
+        inactive.setStatus(Status.INACTIVE);
+        move(follower, inactive);
+
+        assertEquals(List.of("B1 HEADWAY_GAP cleared"), alerts);
+        assertEquals(List.of("B3"), monitor.getHeadways("L1").stream().map(h -> h.bus().getBusNumber()).toList());
+    }
+
+    @Test
+    void dropsALineOnceItsLastBusLeaves() {
+        BusResponse only = bus("B1", "L1", 1000);
+        move(null, only);
+
+        move(only, null);
+
+        assertEquals(List.of(), monitor.getHeadways("L1"));
+    }
+
+    private void move(BusResponse previous, BusResponse current) {
+        monitor.onBusChanged(previous, current);
+    }
+
+    private static BusResponse bus(String busNumber, String lineCode, double distanceAlongRoute) {
+        return bus(UUID.randomUUID(), busNumber, lineCode, distanceAlongRoute);
+    }
+
+    private static BusResponse bus(UUID id, String busNumber, String lineCode, double distanceAlongRoute) {
+        BusResponse bus = new BusResponse(id, busNumber, lineCode, 60, Status.ACTIVE,
+                34.0, -6.8, 0.0, 0.0, null, null, null);
+        bus.setRouteMatch(new RouteMatch(distanceAlongRoute, 34.0, -6.8, 0, 0));
+        return bus;
+    }
+}
@@ -0,0 +1,113 @@
+package com.soa.busservice.tracking;
+
+import com.soa.busservice.dto.BusResponse;
+import com.soa.busservice.model.Status;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Grid cells are 0.005 degrees, about 556 m north-south and 461 m east-west at the query latitude.
+ * The query point sits 10 m west of its cell's eastern edge (-6.835).
+ */
+class SpatialIndexTest {
+
+    private static final double LAT = 34.0025;
+    private static final double LON = -6.83511;
+
+    private final SpatialIndex index = new SpatialIndex();
+
+    @Test
+    void findsABusAcrossTheCellEdgeBeforeAFartherOneInTheSameCell() {
+        UUID sameCell = place(0, -400);
+        UUID nextCell = place(0, 20);
+
+        assertEquals(List.of(nextCell), ids(index.nearest(LAT, LON, 1000, 1)));
+        assertEquals(List.of(nextCell, sameCell), ids(index.nearest(LAT, LON, 1000, 2)));
+    }
+
+    @Test
+    void widensRingByRingUpToTheRadius() {
+        UUID far = place(1400, 0); // three rows up
+
+        assertEquals(List.of(far), ids(index.nearest(LAT, LON, 1500, 5)));
+        assertTrue(index.nearest(LAT, LON, 1300, 5).isEmpty());
+    }
+
+    @Test
+    void leavesOutBusesBeyondTheRadius() {
+        UUID inside = place(0, 490);
+        place(0, 510);
+        place(-510, 0);
+
+        List<SpatialIndex.Hit> hits = index.nearest(LAT, LON, 500, 10);
+
+        assertEquals(List.of(inside), ids(hits));
+        assertTrue(hits.get(0).distanceMeters() <= 500);
+    }
+
+    @Test
+    void keepsTheClosestBusesUpToTheLimit() {
+        UUID first = place(30, 0);
+        UUID second = place(0, -60);
+        UUID third = place(-300, 300); // diagonal neighbour cell
+        place(700, 0);
+        place(0, -900);
+
+        List<SpatialIndex.Hit> hits = index.nearest(LAT, LON, 2000, 3);
+
+        assertEquals(List.of(first, second, third), ids(hits));
+        assertTrue(hits.get(0).distanceMeters() < hits.get(1).distanceMeters());
+    }
+
+    @Test
+    void followsBusesAcrossCellsAndForgetsRemovedOnes() {
+        UUID moving = place(0, -400);
+        BusResponse moved = bus(moving, 2000, 0);
+        index.onBusChanged(bus(moving, 0, -400), moved);
+
+        assertTrue(index.nearest(LAT, LON, 1000, 5).isEmpty());
+        assertEquals(List.of(moving), ids(index.nearest(moved.getLatitude(), moved.getLongitude(), 10, 5)));
+
+        BusResponse withoutFix = bus(moving, 0, 0);
+        withoutFix.setLatitude(null);
+        index.onBusChanged(moved, withoutFix);
+        assertTrue(index.nearest(moved.getLatitude(), moved.getLongitude(), 10, 5).isEmpty());
+
+        UUID removed = place(0, 20);
+        index.onBusChanged(bus(removed, 0, 20), null);
+        assertTrue(index.nearest(LAT, LON, 1000, 5).isEmpty());
+    }
+
+    @Test
+    void returnsOnlyBusesInsideTheBoundingBox() {
+        UUID inside = place(100, 100);
+        place(100, 300); // in a scanned cell, outside the box
+
+        List<UUID> result = index.within(LAT, LON, LAT + 0.002, LON + 0.002);
+
+        assertEquals(List.of(inside), result);
+    }
+
+    private UUID place(double northMeters, double eastMeters) {
+        UUID id = UUID.randomUUID();
+        index.onBusChanged(null, bus(id, northMeters, eastMeters));
+        return id;
+    }
+
+    private static BusResponse bus(UUID id, double northMeters, double eastMeters) {
+        return new BusResponse(id, "B-" + id.toString().substring(0, 4), "L1", 50, Status.ACTIVE,
+                LAT + northMeters / GeoUtils.METERS_PER_DEGREE_LAT,
+                LON + eastMeters / GeoUtils.metersPerDegreeLon(LAT),
+                null, null, LocalDateTime.now(), null, null);
+    }
+
+    private static List<UUID> ids(List<SpatialIndex.Hit> hits) {
+        return hits.stream().map(SpatialIndex.Hit::busId).toList();
+    }
+}
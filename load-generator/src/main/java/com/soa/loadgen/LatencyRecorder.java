@@ -0,0 +1,69 @@
+package com.soa.loadgen;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects request outcomes for one operation. Latencies are kept raw (microseconds) and sorted once
+ * for the report, which keeps percentiles exact for runs of a few million samples.
+ */
+final class LatencyRecorder {
+
+    private final String name;
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private long[] samples = new long[1 << 16];
+    private int count;
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    synchronized void record(long micros) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = micros;
+    }
+
+    void error() {
+        errors.increment();
+    }
+
+    /** Counts payload units (fixes, messages) carried by successful requests. */
+    void items(long n) {
+        items.add(n);
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    long itemCount() {
+        return items.sum();
+    }
+
+    String report(double seconds) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        long errorCount = errors.sum();
+        long total = sorted.length + errorCount;
+        return String.format(
+                "%-18s requests=%d (%.1f/s) items=%d (%.1f/s) errors=%d (%.2f%%) p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms",
+                name, total, total / seconds, items.sum(), items.sum() / seconds, errorCount,
+                total == 0 ? 0.0 : 100.0 * errorCount / total,
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+                sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1000.0);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.soa.loadgen;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Run settings, read from --name=value arguments.
+ */
+public record LoadConfig(
+        String busServiceUrl,
+        String trajetServiceUrl,
+        String routesFile,
+        int vehicles,
+        Mode mode,
+        long fixIntervalMillis,
+        int batchSize,
+        int webSocketClients,
+        int maxInFlight,
+        Duration duration,
+        double speedKmH) {
+
+    public enum Mode {
+        BATCH, // POST /api/buses/locations:batch
+        REST   // PATCH /api/buses/{id}/location, one request per fix
+    }
+
+    public static LoadConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return new LoadConfig(
+                values.getOrDefault("bus-url", "http://localhost:8080"),
+                values.getOrDefault("trajet-url", "http://localhost:8082"),
+                values.get("routes-file"),
+                Integer.parseInt(values.getOrDefault("vehicles", "100")),
+                Mode.valueOf(values.getOrDefault("mode", "batch").toUpperCase()),
+                Long.parseLong(values.getOrDefault("interval-ms", "1000")),
+                Integer.parseInt(values.getOrDefault("batch-size", "200")),
+                Integer.parseInt(values.getOrDefault("ws-clients", "10")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "256")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration-seconds", "60"))),
+                Double.parseDouble(values.getOrDefault("speed-kmh", "35")));
+    }
+
+    public double fixesPerSecond() {
+        return vehicles * 1000.0 / fixIntervalMillis;
+    }
+}
@@ -0,0 +1,236 @@
+package com.soa.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives bus-service with N virtual vehicles moving along real route geometry, and with WebSocket
+ * subscribers on the rider side, then reports latency percentiles, throughput and error rates.
+ * <p>
+ * Usage (against the docker-compose stack):
+ * <pre>
+ * mvn -q package
+ * java -jar target/load-generator-0.0.1-SNAPSHOT.jar --vehicles=2000 --interval-ms=2000 --mode=batch \
+ *      --batch-size=250 --ws-clients=50 --duration-seconds=120
+ * </pre>
+ * Options: bus-url, trajet-url, routes-file, vehicles, mode (batch|rest), interval-ms (per vehicle),
+ * batch-size, ws-clients, max-in-flight, duration-seconds, speed-kmh. Vehicles are registered as buses
+ * LG-00001.. (created or updated through /api/buses:batch) so reruns reuse them.
+ */
+public final class LoadGenerator {
+
+    private static final int SLOTS = 10; // each tick sends one tenth of the fleet, spreading load over the interval
+    private static final int SETUP_BATCH = 500;
+
+    private final LoadConfig config;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final Semaphore inFlight;
+
+    private final LatencyRecorder batchIngest = new LatencyRecorder("locations:batch");
+    private final LatencyRecorder restIngest = new LatencyRecorder("PATCH location");
+    private final LongAdder rejectedFixes = new LongAdder();
+    private final LongAdder skippedSends = new LongAdder();
+
+    private LoadGenerator(LoadConfig config) {
+        this.config = config;
+        this.inFlight = new Semaphore(config.maxInFlight());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(LoadConfig.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        List<Route> routes = new RouteSource(http, mapper).load(config);
+        System.out.printf("Loaded %d routes%n", routes.size());
+
+        List<VirtualVehicle> vehicles = new ArrayList<>(config.vehicles());
+        for (int i = 0; i < config.vehicles(); i++) {
+            vehicles.add(new VirtualVehicle(String.format("LG-%05d", i + 1), routes.get(i % routes.size()), config.speedKmH()));
+        }
+        registerBuses(vehicles);
+        System.out.printf("Registered %d vehicles; target %.0f fixes/s in %s mode%n",
+                vehicles.size(), config.fixesPerSecond(), config.mode());
+
+        WebSocketClients sockets = new WebSocketClients(http, mapper);
+        sockets.connect(config.busServiceUrl(), config.webSocketClients());
+        System.out.printf("Connected %d WebSocket clients%n", sockets.connected());
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        AtomicLong tick = new AtomicLong();
+        long period = Math.max(1, config.fixIntervalMillis() / SLOTS);
+        long started = System.nanoTime();
+        scheduler.scheduleAtFixedRate(() -> sendSlot(vehicles, (int) (tick.getAndIncrement() % SLOTS)),
+                0, period, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(() -> System.out.println(progress(started)), 5, 5, TimeUnit.SECONDS);
+
+        Thread.sleep(config.duration().toMillis());
+        scheduler.shutdownNow();
+        inFlight.tryAcquire(config.maxInFlight(), 30, TimeUnit.SECONDS); // let outstanding requests finish
+        double seconds = (System.nanoTime() - started) / 1e9;
+        sockets.close();
+
+        System.out.println();
+        System.out.printf("Run: %.1f s, %d vehicles, target %.0f fixes/s%n", seconds, vehicles.size(), config.fixesPerSecond());
+        System.out.println(config.mode() == LoadConfig.Mode.BATCH ? batchIngest.report(seconds) : restIngest.report(seconds));
+        System.out.printf("%-18s rejected=%d skipped(client saturated)=%d%n", "fixes", rejectedFixes.sum(), skippedSends.sum());
+        System.out.println(sockets.report(seconds));
+        System.exit(0);
+    }
+
+    private void sendSlot(List<VirtualVehicle> vehicles, int slot) {
+        long now = System.currentTimeMillis();
+        String timestamp = LocalDateTime.now().toString();
+        ArrayNode batch = mapper.createArrayNode();
+        for (int i = slot; i < vehicles.size(); i += SLOTS) {
+            VirtualVehicle vehicle = vehicles.get(i);
+            if (vehicle.busId == null) {
+                continue;
+            }
+            double[] point = vehicle.advance(now);
+            ObjectNode fix = mapper.createObjectNode()
+                    .put("latitude", point[0])
+                    .put("longitude", point[1])
+                    .put("speed", vehicle.speedKmH())
+                    .put("heading", point[2]);
+            if (config.mode() == LoadConfig.Mode.REST) {
+                send(HttpRequest.newBuilder(URI.create(config.busServiceUrl() + "/api/buses/" + vehicle.busId + "/location"))
+                        .method("PATCH", body(fix)), restIngest, 1);
+            } else {
+                batch.add(fix.put("busId", vehicle.busId).put("timestamp", timestamp));
+                if (batch.size() == config.batchSize()) {
+                    sendBatch(batch);
+                    batch = mapper.createArrayNode();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            sendBatch(batch);
+        }
+    }
+
+    private void sendBatch(ArrayNode batch) {
+        send(HttpRequest.newBuilder(URI.create(config.busServiceUrl() + "/api/buses/locations:batch"))
+                .POST(body(batch)), batchIngest, batch.size());
+    }
+
+    private void send(HttpRequest.Builder builder, LatencyRecorder recorder, int fixes) {
+        if (!inFlight.tryAcquire()) {
+            skippedSends.add(fixes);
+            return;
+        }
+        HttpRequest request = builder.header("Content-Type", "application/json").timeout(Duration.ofSeconds(30)).build();
+        long start = System.nanoTime();
+        http.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            inFlight.release();
+            if (error != null || response.statusCode() >= 300) {
+                recorder.error();
+                return;
+            }
+            recorder.record((System.nanoTime() - start) / 1000);
+            recorder.items(fixes);
+            if (recorder == batchIngest) {
+                try {
+                    rejectedFixes.add(mapper.readTree(response.body()).path("rejected").asLong());
+                } catch (Exception ignored) {
+                    // latency is what matters here; an unreadable body is not counted twice
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates the vehicles' buses, or updates them onto their route when they exist from an earlier run.
+     */
+    private void registerBuses(List<VirtualVehicle> vehicles) throws Exception {
+        Map<String, VirtualVehicle> byNumber = new HashMap<>();
+        vehicles.forEach(vehicle -> byNumber.put(vehicle.busNumber, vehicle));
+
+        for (int from = 0; from < vehicles.size(); from += SETUP_BATCH) {
+            List<VirtualVehicle> chunk = vehicles.subList(from, Math.min(vehicles.size(), from + SETUP_BATCH));
+            ArrayNode create = mapper.createArrayNode();
+            chunk.forEach(vehicle -> create.add(busBody(vehicle)));
+            JsonNode created = mapper.readTree(postJson("/api/buses:batch", "POST", create));
+
+            ArrayNode update = mapper.createArrayNode();
+            for (JsonNode result : created.path("results")) {
+                VirtualVehicle vehicle = chunk.get(result.path("index").asInt());
+                if ("CREATED".equals(result.path("outcome").asText())) {
+                    vehicle.busId = result.path("id").asText();
+                } else if ("CONFLICT".equals(result.path("outcome").asText())) {
+                    JsonNode existing = mapper.readTree(getJson("/api/buses/number/" + vehicle.busNumber));
+                    vehicle.busId = existing.path("id").asText();
+                    update.add(busBody(vehicle).put("id", vehicle.busId));
+                }
+            }
+            if (!update.isEmpty()) {
+                postJson("/api/buses:batch", "PUT", update);
+            }
+        }
+        long missing = vehicles.stream().filter(vehicle -> vehicle.busId == null).count();
+        if (missing > 0) {
+            System.out.printf("Warning: %d vehicles could not be registered and will not report%n", missing);
+        }
+    }
+
+    private ObjectNode busBody(VirtualVehicle vehicle) {
+        return mapper.createObjectNode()
+                .put("busNumber", vehicle.busNumber)
+                .put("lineCode", vehicle.route.name())
+                .put("capacity", 80)
+                .put("status", "ACTIVE");
+    }
+
+    private String postJson(String path, String method, JsonNode body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.busServiceUrl() + path))
+                .header("Content-Type", "application/json")
+                .method(method, body(body))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(method + " " + path + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private String getJson(String path) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(config.busServiceUrl() + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private HttpRequest.BodyPublisher body(JsonNode node) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(node));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String progress(long started) {
+        double seconds = (System.nanoTime() - started) / 1e9;
+        LatencyRecorder recorder = config.mode() == LoadConfig.Mode.BATCH ? batchIngest : restIngest;
+        return String.format("[%5.0fs] %d requests, %.0f fixes/s, %d in flight, %d skipped",
+                seconds, recorder.count(), recorder.itemCount() / seconds,
+                config.maxInFlight() - inFlight.availablePermits(), skippedSends.sum());
+    }
+}
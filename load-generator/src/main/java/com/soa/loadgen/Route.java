@@ -0,0 +1,71 @@
+package com.soa.loadgen;
+
+import java.util.List;
+
+/**
+ * Route polyline with cumulative distances, so a vehicle's position is a single distance along it.
+ * Vertices are [lat, lon].
+ */
+public final class Route {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    private final String name;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] cumulative;
+
+    public Route(String name, List<double[]> path) {
+        this.name = name;
+        int n = path.size();
+        this.latitudes = new double[n];
+        this.longitudes = new double[n];
+        this.cumulative = new double[n];
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = path.get(i)[0];
+            longitudes[i] = path.get(i)[1];
+            if (i > 0) {
+                cumulative[i] = cumulative[i - 1] + distance(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+            }
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public double length() {
+        return cumulative[cumulative.length - 1];
+    }
+
+    /**
+     * Writes [lat, lon, heading] of the point at the given distance along the route into {@code out}.
+     */
+    public void pointAt(double distance, double[] out) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] <= distance) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        double segment = cumulative[high] - cumulative[low];
+        double t = segment == 0 ? 0 : Math.max(0, Math.min(1, (distance - cumulative[low]) / segment));
+        out[0] = latitudes[low] + t * (latitudes[high] - latitudes[low]);
+        out[1] = longitudes[low] + t * (longitudes[high] - longitudes[low]);
+        double dy = latitudes[high] - latitudes[low];
+        double dx = (longitudes[high] - longitudes[low]) * Math.cos(Math.toRadians(out[0]));
+        out[2] = (Math.toDegrees(Math.atan2(dx, dy)) + 360) % 360;
+    }
+
+    private static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
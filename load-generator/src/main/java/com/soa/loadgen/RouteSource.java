@@ -0,0 +1,90 @@
+package com.soa.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads route geometry the same way the route viewer does: every line from trajet-service, then its
+ * routes with their GeoJSON. Alternatively reads a file holding a JSON array of {"name", "geometry"}
+ * objects (the shape of /api/lines/{ref}/routes), for runs without trajet-service.
+ */
+final class RouteSource {
+
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+
+    RouteSource(HttpClient http, ObjectMapper mapper) {
+        this.http = http;
+        this.mapper = mapper;
+    }
+
+    List<Route> load(LoadConfig config) throws IOException, InterruptedException {
+        List<Route> routes = new ArrayList<>();
+        if (config.routesFile() != null) {
+            addRoutes(mapper.readTree(Path.of(config.routesFile()).toFile()), routes);
+        } else {
+            JsonNode lines = get(config.trajetServiceUrl() + "/api/lines");
+            for (JsonNode line : lines) {
+                String ref = URLEncoder.encode(line.path("ref").asText(), StandardCharsets.UTF_8).replace("+", "%20");
+                addRoutes(get(config.trajetServiceUrl() + "/api/lines/" + ref + "/routes"), routes);
+            }
+        }
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("No route geometry found");
+        }
+        return routes;
+    }
+
+    private JsonNode get(String url) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + url + " returned " + response.statusCode());
+        }
+        return mapper.readTree(response.body());
+    }
+
+    private void addRoutes(JsonNode array, List<Route> routes) throws IOException {
+        for (JsonNode route : array) {
+            JsonNode geometry = route.path("geometry");
+            if (geometry.isTextual()) {
+                geometry = mapper.readTree(geometry.asText());
+            }
+            List<double[]> path = parsePath(geometry);
+            if (path.size() >= 2) {
+                routes.add(new Route(route.path("name").asText(), path));
+            }
+        }
+    }
+
+    // LineString or MultiLineString, parts concatenated in order (as bus-service's RouteGeometryCache does)
+    private static List<double[]> parsePath(JsonNode geometry) {
+        List<double[]> path = new ArrayList<>();
+        JsonNode coordinates = geometry.path("coordinates");
+        if ("MultiLineString".equalsIgnoreCase(geometry.path("type").asText())) {
+            for (JsonNode part : coordinates) {
+                addPoints(part, path);
+            }
+        } else {
+            addPoints(coordinates, path);
+        }
+        return path;
+    }
+
+    private static void addPoints(JsonNode points, List<double[]> path) {
+        for (JsonNode point : points) {
+            path.add(new double[]{point.get(1).asDouble(), point.get(0).asDouble()});
+        }
+    }
+}
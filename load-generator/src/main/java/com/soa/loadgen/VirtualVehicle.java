@@ -0,0 +1,52 @@
+package com.soa.loadgen;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A bus driving back and forth along a route at a slightly jittered speed.
+ */
+final class VirtualVehicle {
+
+    final String busNumber;
+    final Route route;
+    String busId;
+
+    private final double speedMps;
+    private double distance;
+    private boolean forward = true;
+    private long lastMillis;
+    private final double[] point = new double[3];
+
+    VirtualVehicle(String busNumber, Route route, double speedKmH) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.busNumber = busNumber;
+        this.route = route;
+        this.speedMps = speedKmH / 3.6 * (0.8 + 0.4 * random.nextDouble());
+        this.distance = random.nextDouble() * route.length();
+        this.lastMillis = System.currentTimeMillis();
+        route.pointAt(distance, point);
+    }
+
+    /** Moves the vehicle to the current time; returns [lat, lon, heading]. */
+    synchronized double[] advance(long nowMillis) {
+        double step = speedMps * (nowMillis - lastMillis) / 1000.0;
+        lastMillis = nowMillis;
+        distance += forward ? step : -step;
+        if (distance >= route.length()) {
+            distance = route.length();
+            forward = false;
+        } else if (distance <= 0) {
+            distance = 0;
+            forward = true;
+        }
+        route.pointAt(distance, point);
+        if (!forward) {
+            point[2] = (point[2] + 180) % 360;
+        }
+        return point.clone();
+    }
+
+    double speedKmH() {
+        return speedMps * 3.6;
+    }
+}
@@ -0,0 +1,106 @@
+package com.soa.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rider-side load: N WebSocket subscribers on /ws/gps-tracking counting what the server pushes.
+ */
+final class WebSocketClients {
+
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    private final List<WebSocket> sockets = new ArrayList<>();
+
+    final LongAdder connectErrors = new LongAdder();
+    final LongAdder gpsUpdates = new LongAdder();
+    final LongAdder alerts = new LongAdder();
+    final LongAdder otherMessages = new LongAdder();
+    final LongAdder closedByServer = new LongAdder();
+    // Origin stamp of the fix (set by bus-service on ingestion) to frame receipt; same-host clocks assumed
+    final LatencyRecorder fixToFrame = new LatencyRecorder("fix-to-frame");
+
+    WebSocketClients(HttpClient http, ObjectMapper mapper) {
+        this.http = http;
+        this.mapper = mapper;
+    }
+
+    void connect(String busServiceUrl, int clients) {
+        URI uri = URI.create(busServiceUrl.replaceFirst("^http", "ws") + "/ws/gps-tracking");
+        for (int i = 0; i < clients; i++) {
+            try {
+                sockets.add(http.newWebSocketBuilder().buildAsync(uri, new Counter()).get(10, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                connectErrors.increment();
+            }
+        }
+    }
+
+    int connected() {
+        return sockets.size();
+    }
+
+    void close() {
+        for (WebSocket socket : sockets) {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    String report(double seconds) {
+        long total = gpsUpdates.sum() + alerts.sum() + otherMessages.sum();
+        return String.format(
+                "%-18s clients=%d connectErrors=%d messages=%d (%.1f/s) gpsUpdates=%d alerts=%d closedByServer=%d",
+                "websocket", sockets.size(), connectErrors.sum(), total, total / seconds,
+                gpsUpdates.sum(), alerts.sum(), closedByServer.sum())
+                + System.lineSeparator() + fixToFrame.report(seconds);
+    }
+
+    private final class Counter implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                count(partial.toString());
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closedByServer.increment();
+            return null;
+        }
+
+        private void count(String message) {
+            try {
+                JsonNode node = mapper.readTree(message);
+                switch (node.path("type").asText()) {
+                    case "GPS_UPDATE" -> {
+                        gpsUpdates.increment();
+                        JsonNode origin = node.path("payload").path("originTimestamp");
+                        if (origin.isNumber()) {
+                            fixToFrame.record(Math.max(0, System.currentTimeMillis() - origin.asLong()) * 1000);
+                        }
+                    }
+                    case "BUS_ALERT" -> alerts.increment();
+                    default -> otherMessages.increment();
+                }
+            } catch (Exception e) {
+                otherMessages.increment();
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 // src/main/java/com/trajets/config/ImportConfig.java
 package com.trajets.config;
 
+import com.trajets.importer.TokenBucketRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -12,4 +14,14 @@ public class ImportConfig {
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
+
+    /**
+     * Shared by every Overpass request, whichever import worker makes it.
+     */
+    @Bean
+    public TokenBucketRateLimiter overpassRateLimiter(
+            @Value("${import.overpass.requests-per-second:1.0}") double requestsPerSecond,
+            @Value("${import.overpass.burst:2}") int burst) {
+        return new TokenBucketRateLimiter(requestsPerSecond, burst);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 // src/main/java/com/trajets/controller/LineController.java
 package com.trajets.controller;
 
+import com.trajets.dto.LineDetails;
 import com.trajets.model.Line;
 import com.trajets.model.Route;
 import com.trajets.model.RouteStop;
@@ -8,13 +9,18 @@ import com.trajets.model.Stop;
 import com.trajets.repository.*;
 import com.trajets.service.LineService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -29,22 +35,37 @@ public class LineController {
     private final RouteStopRepository routeStopRepository;
     private final StopRepository stopRepository;
     
+    // Catalog data only changes on import, so responses carry ETags (versions from LineService) and a
+    // request with a matching If-None-Match is answered 304 before any of the payload is built
+    @Value("${catalog.http.max-age:0s}")
+    private Duration maxAge;
+    
     /**
      * GET /api/lines - Get all lines
      */
     @GetMapping
-    public List<Line> getAllLines() {
-        return lineService.getAllLines();
+    public ResponseEntity<List<Line>> getAllLines(WebRequest request) {
+        String eTag = lineService.getCatalogVersion();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return cached(eTag).body(lineService.getAllLines());
     }
     
     /**
      * GET /api/lines/{ref} - Get line by ref (e.g., "32H")
      */
     @GetMapping("/{ref}")
-    public ResponseEntity<Line> getLineByRef(@PathVariable String ref) {
-        return lineService.getLineByRef(ref)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Line> getLineByRef(@PathVariable String ref, WebRequest request) {
+        Optional<Line> line = lineService.getLineByRef(ref);
+        if (line.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = lineService.getLineVersion(line.get());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return cached(eTag).body(line.get());
     }
     
     /**
@@ -53,22 +74,29 @@ public class LineController {
      */
     @GetMapping("/{ref}/routes")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<Route>> getRoutesByLineRef(@PathVariable String ref) {
-        return lineService.getLineByRef(ref)
-                .map(line -> {
-                    List<Route> routes = routeRepository.findByLineId(line.getId());
-                    return ResponseEntity.ok(routes);
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<List<Route>> getRoutesByLineRef(@PathVariable String ref, WebRequest request) {
+        Optional<Line> line = lineService.getLineByRef(ref);
+        if (line.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = lineService.getLineVersion(line.get());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return cached(eTag).body(routeRepository.findByLineId(line.get().getId()));
     }
     
     /**
      * GET /api/routes/{routeId} - Get specific route details
      */
     @GetMapping("/routes/{routeId}")
-    public ResponseEntity<Route> getRoute(@PathVariable Long routeId) {
+    public ResponseEntity<Route> getRoute(@PathVariable Long routeId, WebRequest request) {
+        String eTag = lineService.getCatalogVersion();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
         return routeRepository.findById(routeId)
-                .map(ResponseEntity::ok)
+                .map(route -> cached(eTag).body(route))
                 .orElse(ResponseEntity.notFound().build());
     }
     
@@ -77,10 +105,14 @@ public class LineController {
      */
     @GetMapping("/routes/{routeId}/stops")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<Map<String, Object>>> getStopsByRoute(@PathVariable Long routeId) {
+    public ResponseEntity<List<Map<String, Object>>> getStopsByRoute(@PathVariable Long routeId, WebRequest request) {
         if (!routeRepository.existsById(routeId)) {
             return ResponseEntity.notFound().build();
         }
+        String eTag = lineService.getCatalogVersion();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
         
         List<RouteStop> routeStops = routeStopRepository.findByRouteIdOrderByStopOrder(routeId);
         
@@ -98,54 +130,29 @@ public class LineController {
                 })
                 .collect(Collectors.toList());
         
-        return ResponseEntity.ok(result);
+        return cached(eTag).body(result);
     }
     
     /**
      * GET /api/lines/{ref}/complete - Get complete line info with all routes and stops
      */
     @GetMapping("/{ref}/complete")
-    @Transactional(readOnly = true)
-    public ResponseEntity<Map<String, Object>> getCompleteLineInfo(@PathVariable String ref) {
-        return lineService.getLineByRef(ref)
-                .map(line -> {
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("line", line);
-                    
-                    List<Route> routes = routeRepository.findByLineId(line.getId());
-                    
-                    List<Map<String, Object>> routesWithStops = routes.stream()
-                            .map(route -> {
-                                Map<String, Object> routeInfo = new HashMap<>();
-                                routeInfo.put("id", route.getId());
-                                routeInfo.put("name", route.getName());
-                                routeInfo.put("direction", route.getDirection());
-                                routeInfo.put("geometry", route.getGeometry());
-                                
-                                List<RouteStop> stops = routeStopRepository
-                                        .findByRouteIdOrderByStopOrder(route.getId());
-                                
-                                List<Map<String, Object>> stopList = stops.stream()
-                                        .map(rs -> {
-                                            Stop stop = rs.getStop();
-                                            Map<String, Object> stopInfo = new HashMap<>();
-                                            stopInfo.put("id", stop.getId());
-                                            stopInfo.put("name", stop.getName());
-                                            stopInfo.put("latitude", stop.getLatitude());
-                                            stopInfo.put("longitude", stop.getLongitude());
-                                            stopInfo.put("order", rs.getStopOrder());
-                                            return stopInfo;
-                                        })
-                                        .collect(Collectors.toList());
-                                
-                                routeInfo.put("stops", stopList);
-                                return routeInfo;
-                            })
-                            .collect(Collectors.toList());
-                    
-                    result.put("routes", routesWithStops);
-                    return ResponseEntity.ok(result);
-                })
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<LineDetails> getCompleteLineInfo(@PathVariable String ref, WebRequest request) {
+        Optional<Line> line = lineService.getLineByRef(ref);
+        if (line.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = lineService.getLineVersion(line.get());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return cached(eTag).body(lineService.getLineDetails(line.get()));
+    }
+    
+    private ResponseEntity.BodyBuilder cached(String eTag) {
+        // Clients may reuse a response for max-age, then must revalidate it with If-None-Match
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic().mustRevalidate());
     }
 }
\ No newline at end of file
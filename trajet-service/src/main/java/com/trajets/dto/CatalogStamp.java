@@ -0,0 +1,8 @@
+package com.trajets.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of lines and the latest line update; changes whenever an import adds or updates a line.
+ */
+public record CatalogStamp(Long lines, LocalDateTime lastUpdate) {}
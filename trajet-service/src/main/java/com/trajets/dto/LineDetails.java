@@ -0,0 +1,16 @@
+package com.trajets.dto;
+
+import com.trajets.geo.GeoJsonGeometry;
+import com.trajets.model.Line;
+
+import java.util.List;
+
+/**
+ * A line with its routes and their ordered stops, as served by GET /api/lines/{ref}/complete.
+ */
+public record LineDetails(Line line, List<RouteDetails> routes) {
+
+    public record RouteDetails(Long id, String name, String direction, GeoJsonGeometry geometry, List<StopDetails> stops) {}
+
+    public record StopDetails(Long id, String name, Double latitude, Double longitude, Integer order) {}
+}
@@ -11,6 +11,6 @@ public class OsmRouteData {
     private String ref;
     private String name;
     private String direction;
-    private String geometryGeoJson; // LineString GeoJSON
+    private String encodedGeometry; // one polyline6 per way, space-separated (see EncodedPolyline)
     private List<OsmStopData> stops = new ArrayList<>();
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.trajets.dto;
+
+/**
+ * The columns of a route needed by GET /api/lines/{ref}/complete (see RouteRepository.findRowsByLineId).
+ * legacyGeometry is only read for routes without an encoded geometry.
+ */
+public record RouteRow(Long id, String name, String direction, String encodedGeometry, String legacyGeometry) {}
@@ -0,0 +1,6 @@
+package com.trajets.dto;
+
+/**
+ * One stop of one route, read with a single joined query (see RouteStopRepository.findRowsByLineId).
+ */
+public record RouteStopRow(Long routeId, Long stopId, String name, Double latitude, Double longitude, Integer stopOrder) {}
@@ -0,0 +1,177 @@
+package com.trajets.geo;
+
+import java.util.List;
+
+/**
+ * Route geometry as encoded polylines (the Google polyline algorithm at 1e-6 degree precision, a.k.a.
+ * polyline6), one per segment, separated by spaces. Each segment is a way as it appears in OSM, so
+ * gaps in the data are not bridged. This is about a fifth of the size of the equivalent GeoJSON text.
+ */
+public final class EncodedPolyline {
+
+    private static final double PRECISION = 1e6;
+    private static final char SEGMENT_SEPARATOR = ' ';
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    /**
+     * Bounding box, length (summed within segments, in meters) and number of points of a geometry.
+     */
+    public record Summary(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                          double lengthMeters, int vertexCount) {}
+
+    private interface PointVisitor {
+        void point(boolean segmentStart, long latitudeE6, long longitudeE6);
+    }
+
+    private EncodedPolyline() {
+    }
+
+    /**
+     * Encodes segments held in one buffer of lon, lat pairs (GeoJSON order); each segment runs from its
+     * start offset to the next segment's start, the last one to size. Empty when there are no segments.
+     */
+    public static String encode(double[] coordinates, int size, List<Integer> segmentStarts) {
+        StringBuilder out = new StringBuilder(size * 3);
+        for (int s = 0; s < segmentStarts.size(); s++) {
+            int end = s + 1 < segmentStarts.size() ? segmentStarts.get(s + 1) : size;
+            if (s > 0) {
+                out.append(SEGMENT_SEPARATOR);
+            }
+            long previousLat = 0;
+            long previousLon = 0;
+            for (int i = segmentStarts.get(s); i < end; i += 2) {
+                long lat = Math.round(coordinates[i + 1] * PRECISION);
+                long lon = Math.round(coordinates[i] * PRECISION);
+                appendValue(out, lat - previousLat);
+                appendValue(out, lon - previousLon);
+                previousLat = lat;
+                previousLon = lon;
+            }
+        }
+        return out.toString();
+    }
+
+    public static Summary summarize(String encoded) {
+        double[] box = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        double[] length = {0};
+        int[] count = {0};
+        double[] previous = new double[2];
+        decode(encoded, (segmentStart, latE6, lonE6) -> {
+            double lat = latE6 / PRECISION;
+            double lon = lonE6 / PRECISION;
+            box[0] = Math.min(box[0], lat);
+            box[1] = Math.min(box[1], lon);
+            box[2] = Math.max(box[2], lat);
+            box[3] = Math.max(box[3], lon);
+            if (!segmentStart) {
+                length[0] += distanceMeters(previous[0], previous[1], lat, lon);
+            }
+            previous[0] = lat;
+            previous[1] = lon;
+            count[0]++;
+        });
+        if (count[0] == 0) {
+            return new Summary(0, 0, 0, 0, 0, 0);
+        }
+        return new Summary(box[0], box[1], box[2], box[3], length[0], count[0]);
+    }
+
+    /**
+     * The geometry as a GeoJSON MultiLineString, or "{}" when it is empty.
+     */
+    public static String toGeoJson(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return "{}";
+        }
+        StringBuilder out = new StringBuilder(encoded.length() * 5 + 48);
+        out.append("{\"type\":\"MultiLineString\",\"coordinates\":[");
+        boolean[] first = {true};
+        decode(encoded, (segmentStart, latE6, lonE6) -> {
+            if (segmentStart) {
+                out.append(first[0] ? "[" : "],[");
+                first[0] = false;
+            } else {
+                out.append(',');
+            }
+            out.append('[');
+            appendFixed(out, lonE6);
+            out.append(',');
+            appendFixed(out, latE6);
+            out.append(']');
+        });
+        return out.append("]]}").toString();
+    }
+
+    private static void decode(String encoded, PointVisitor visitor) {
+        int index = 0;
+        int length = encoded.length();
+        while (index < length) {
+            long lat = 0;
+            long lon = 0;
+            boolean segmentStart = true;
+            while (index < length && encoded.charAt(index) != SEGMENT_SEPARATOR) {
+                long[] value = new long[1];
+                index = readValue(encoded, index, value);
+                lat += value[0];
+                index = readValue(encoded, index, value);
+                lon += value[0];
+                visitor.point(segmentStart, lat, lon);
+                segmentStart = false;
+            }
+            index++; // separator
+        }
+    }
+
+    private static void appendValue(StringBuilder out, long value) {
+        long bits = value < 0 ? ~(value << 1) : value << 1;
+        while (bits >= 0x20) {
+            out.append((char) ((0x20 | (bits & 0x1f)) + 63));
+            bits >>>= 5;
+        }
+        out.append((char) (bits + 63));
+    }
+
+    private static int readValue(String encoded, int index, long[] value) {
+        long bits = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            if (index >= encoded.length()) {
+                throw new IllegalArgumentException("Truncated encoded polyline");
+            }
+            chunk = encoded.charAt(index++) - 63;
+            bits |= (long) (chunk & 0x1f) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        value[0] = (bits & 1) != 0 ? ~(bits >>> 1) : bits >>> 1;
+        return index;
+    }
+
+    /**
+     * Writes a 1e-6 fixed-point value as a plain decimal (never in exponent notation).
+     */
+    private static void appendFixed(StringBuilder out, long valueE6) {
+        if (valueE6 < 0) {
+            out.append('-');
+            valueE6 = -valueE6;
+        }
+        out.append(valueE6 / 1_000_000);
+        long fraction = valueE6 % 1_000_000;
+        if (fraction != 0) {
+            String digits = Long.toString(fraction + 1_000_000).substring(1);
+            int end = digits.length();
+            while (digits.charAt(end - 1) == '0') {
+                end--;
+            }
+            out.append('.').append(digits, 0, end);
+        }
+    }
+
+    private static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,41 @@
+package com.trajets.geo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * A route geometry held in its stored form and serialized as GeoJSON text, like Route.getGeometry().
+ * The GeoJSON is generated while the response is written, one route at a time, so a response never
+ * holds the GeoJSON of all its routes at once.
+ *
+ * @param encoded    the encoded polylines (see EncodedPolyline), or null for legacy routes
+ * @param legacyJson the stored GeoJSON of routes imported before encoded geometries, otherwise null
+ */
+@JsonSerialize(using = GeoJsonGeometry.Serializer.class)
+public record GeoJsonGeometry(String encoded, String legacyJson) {
+
+    public String toGeoJson() {
+        return encoded != null ? EncodedPolyline.toGeoJson(encoded) : legacyJson;
+    }
+
+    static class Serializer extends StdSerializer<GeoJsonGeometry> {
+
+        Serializer() {
+            super(GeoJsonGeometry.class);
+        }
+
+        @Override
+        public void serialize(GeoJsonGeometry value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            String geoJson = value.toGeoJson();
+            if (geoJson != null) {
+                gen.writeString(geoJson);
+            } else {
+                gen.writeNull();
+            }
+        }
+    }
+}
@@ -2,30 +2,74 @@
 package com.trajets.importer;
 
 import com.trajets.dto.CsvRouteRecord;
+import com.trajets.dto.OsmRouteData;
 import com.trajets.service.LineService;
+import com.trajets.service.OsmImportService;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.CommandLineRunner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * Imports the lines listed in bus_lines_export.csv once the application is ready, without
+ * blocking startup. Relations are fetched by a bounded pool of workers, in batches of one Overpass
+ * query each, or all at once from a local .osm.pbf extract when import.pbf-file is set. Every Overpass
+ * request goes through the shared rate limiter (see ImportConfig), and saves are serialized because
+ * lines share stops. Each imported line is checkpointed, so an interrupted import resumes where it
+ * stopped; the checkpoint is cleared once a run completes without failures, or up front with
+ * import.force=true.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class CsvLineImporter implements CommandLineRunner {
+public class CsvLineImporter {
     
     private final LineService lineService;
+    private final OsmImportService osmImportService;
     private static final String CSV_FILE = "bus_lines_export.csv";
-    private static final int RATE_LIMIT_DELAY_MS = 1000; // 1 second between requests
+
+    @Value("${import.enabled:true}")
+    private boolean enabled;
+
+    @Value("${import.concurrency:4}")
+    private int concurrency;
+
+    @Value("${import.overpass.batch-size:20}")
+    private int batchSize;
+
+    @Value("${import.checkpoint-file:data/import-checkpoint.txt}")
+    private String checkpointFile;
+
+    @Value("${import.force:false}")
+    private boolean force;
+
+    private final Object writeLock = new Object();
+    private volatile ExecutorService executor;
     
-    @Override
-    public void run(String... args) throws Exception {
+    @EventListener(ApplicationReadyEvent.class)
+    public void startImport() {
+        if (!enabled) {
+            log.info("Line import disabled (import.enabled=false)");
+            return;
+        }
+
         log.info("═════════════════════════════════════════════════════════");
         log.info("          Bus Lines Import from CSV - Single Direction");
         log.info("═════════════════════════════════════════════════════════");
@@ -36,79 +80,150 @@ public class CsvLineImporter implements CommandLineRunner {
             log.warn("No records found in CSV file");
             return;
         }
+
+        ImportCheckpoint checkpoint;
+        try {
+            checkpoint = new ImportCheckpoint(Path.of(checkpointFile));
+            if (force) {
+                log.info("Forced import (import.force=true): ignoring checkpoint {}", checkpointFile);
+                checkpoint.clear();
+            }
+        } catch (IOException e) {
+            log.error("Cannot use import checkpoint {}: {}", checkpointFile, e.getMessage());
+            return;
+        }
         
-        // Group by line ref (each line may have multiple direction options)
+        // Group by line ref (each line may have multiple direction options), keeping CSV order
         Map<String, List<CsvRouteRecord>> lineGroups = records.stream()
-                .collect(Collectors.groupingBy(CsvRouteRecord::getRef));
+                .collect(Collectors.groupingBy(CsvRouteRecord::getRef, LinkedHashMap::new, Collectors.toList()));
         
         log.info("Total CSV records:  {}", records.size());
         log.info("Unique lines:       {}", lineGroups.size());
-        log.info("");
-        
-        // Show what we'll process
-        log.info("Lines to import:");
-        lineGroups.forEach((ref, routes) -> 
-                log.info("  {} -> {} route option(s)", ref, routes.size()));
+        log.info("Workers:            {}", concurrency);
         log.info("");
         
         AtomicInteger successCount = new AtomicInteger(0);
         AtomicInteger failureCount = new AtomicInteger(0);
         AtomicInteger skippedCount = new AtomicInteger(0);
-        
-        int lineNumber = 0;
+        AtomicInteger lineNumber = new AtomicInteger(0);
         int totalLines = lineGroups.size();
-        
-        for (Map.Entry<String, List<CsvRouteRecord>> entry : lineGroups.entrySet()) {
-            lineNumber++;
-            String ref = entry.getKey();
-            List<CsvRouteRecord> routeOptions = entry.getValue();
-            
-            log.info("─────────────────────────────────────────────────────────");
-            log.info("Processing line {}/{}: {}", lineNumber, totalLines, ref);
-            log.info("  Available route options: {}", routeOptions.size());
-            
-            for (int i = 0; i < routeOptions.size(); i++) {
-                log.info("    Option {}: {} (OSM: {})", 
-                        i + 1, 
-                        routeOptions.get(i).getName(), 
-                        routeOptions.get(i).getOsmRelationId());
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "line-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<String, List<CsvRouteRecord>> pending = new LinkedHashMap<>();
+        lineGroups.forEach((ref, options) -> {
+            if (checkpoint.isDone(ref)) {
+                skippedCount.incrementAndGet();
+            } else {
+                pending.put(ref, options);
             }
-            log.info("");
-            
-            try {
-                boolean success = lineService.importLine(ref, routeOptions);
-                
-                if (success) {
-                    successCount.incrementAndGet();
-                } else {
+        });
+
+        try {
+            lineService.beginImport();
+        } catch (Exception e) {
+            log.error("Cannot load known stops, import aborted: {}", e.getMessage());
+            executor.shutdown();
+            return;
+        }
+
+        // One Overpass query per batch of relation ids; each line starts as soon as the batches holding its options are in
+        Map<String, OsmRouteData> relations = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<Void>> fetchByRelation = new HashMap<>();
+        List<String> relationIds = pending.values().stream()
+                .flatMap(List::stream)
+                .map(CsvRouteRecord::getOsmRelationId)
+                .distinct()
+                .toList();
+        // A local extract is scanned in full on every read, so it gets a single batch
+        int fetchSize = osmImportService.usesLocalExtract() ? Math.max(1, relationIds.size()) : batchSize;
+        for (int from = 0; from < relationIds.size(); from += fetchSize) {
+            List<String> batch = relationIds.subList(from, Math.min(relationIds.size(), from + fetchSize));
+            CompletableFuture<Void> fetch = CompletableFuture.runAsync(
+                    () -> relations.putAll(osmImportService.fetchRoutesData(batch)), executor);
+            batch.forEach(id -> fetchByRelation.put(id, fetch));
+        }
+        log.info("Relations to fetch: {} in {} request(s)", relationIds.size(),
+                (relationIds.size() + fetchSize - 1) / fetchSize);
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(pending.size());
+        for (Map.Entry<String, List<CsvRouteRecord>> entry : pending.entrySet()) {
+            String ref = entry.getKey();
+            CompletableFuture<?>[] fetches = entry.getValue().stream()
+                    .map(record -> fetchByRelation.get(record.getOsmRelationId()))
+                    .distinct()
+                    .toArray(CompletableFuture[]::new);
+            tasks.add(CompletableFuture.allOf(fetches).thenRunAsync(() -> {
+                try {
+                    if (importLine(ref, entry.getValue(), relations, lineNumber.incrementAndGet(), totalLines)) {
+                        checkpoint.markDone(ref);
+                        successCount.incrementAndGet();
+                    } else {
+                        failureCount.incrementAndGet();
+                    }
+                } catch (Exception e) {
                     failureCount.incrementAndGet();
+                    log.error("✗ Exception importing line {}: {}", ref, e.getMessage());
                 }
-                
-                // Rate limiting
-                if (lineNumber < totalLines) {
-                    log.info("");
-                    log.info("Waiting {}ms before next line...", RATE_LIMIT_DELAY_MS);
-                    Thread.sleep(RATE_LIMIT_DELAY_MS);
-                    log.info("");
-                }
-                
-            } catch (Exception e) {
-                failureCount.incrementAndGet();
-                log.error("✗ Exception importing line {}: {}", ref, e.getMessage());
+            }, executor));
+        }
+
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+            // Final summary
+            log.info("");
+            log.info("═════════════════════════════════════════════════════════");
+            log.info("                   IMPORT COMPLETE");
+            log.info("═════════════════════════════════════════════════════════");
+            log.info("Total Lines:       {}", totalLines);
+            log.info("Successful:        {} ✓", successCount.get());
+            log.info("Failed:            {} ✗", failureCount.get());
+            log.info("Skipped (done):    {}", skippedCount.get());
+            log.info("Success Rate:      {}%", 
+                    totalLines > 0 ? ((successCount.get() + skippedCount.get()) * 100 / totalLines) : 0);
+            log.info("═════════════════════════════════════════════════════════");
+            if (error == null && failureCount.get() == 0) {
+                // Run complete: the next start imports every line again and picks up OSM changes
+                checkpoint.clear();
             }
+            lineService.endImport();
+            executor.shutdown();
+        });
+    }
+
+    @PreDestroy
+    public void stopImport() throws InterruptedException {
+        ExecutorService running = executor;
+        if (running != null) {
+            running.shutdownNow();
+            running.awaitTermination(10, TimeUnit.SECONDS);
         }
+    }
+
+    private boolean importLine(String ref, List<CsvRouteRecord> routeOptions, Map<String, OsmRouteData> relations,
+                               int lineNumber, int totalLines) {
+        log.info("─────────────────────────────────────────────────────────");
+        log.info("Processing line {}/{}: {}", lineNumber, totalLines, ref);
+        log.info("  Available route options: {}", routeOptions.size());
         
-        // Final summary
-        log.info("");
-        log.info("═════════════════════════════════════════════════════════");
-        log.info("                   IMPORT COMPLETE");
-        log.info("═════════════════════════════════════════════════════════");
-        log.info("Total Lines:       {}", totalLines);
-        log.info("Successful:        {} ✓", successCount.get());
-        log.info("Failed:            {} ✗", failureCount.get());
-        log.info("Success Rate:      {}%", 
-                totalLines > 0 ? (successCount.get() * 100 / totalLines) : 0);
-        log.info("═════════════════════════════════════════════════════════");
+        for (int i = 0; i < routeOptions.size(); i++) {
+            log.info("    Option {}: {} (OSM: {})", 
+                    i + 1, 
+                    routeOptions.get(i).getName(), 
+                    routeOptions.get(i).getOsmRelationId());
+        }
+
+        Optional<LineService.FetchedLine> fetched = lineService.selectLine(ref, routeOptions, relations);
+        if (fetched.isEmpty()) {
+            return false;
+        }
+        synchronized (writeLock) {
+            return lineService.saveLine(fetched.get());
+        }
     }
     
     private List<CsvRouteRecord> readCsvFile() {
@@ -0,0 +1,65 @@
+package com.trajets.importer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Line refs that imported successfully during the current run, one per line, so an interrupted
+ * import resumes where it stopped instead of starting over. The file only spans one run: it is
+ * deleted once a run completes without failures, and the next start imports everything again.
+ */
+@Slf4j
+public class ImportCheckpoint {
+
+    private final Path file;
+    private final Set<String> done = new HashSet<>();
+
+    public ImportCheckpoint(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            List<String> refs = Files.readAllLines(file, StandardCharsets.UTF_8);
+            refs.stream().map(String::trim).filter(ref -> !ref.isEmpty()).forEach(done::add);
+            log.info("Import checkpoint {}: {} line(s) already imported", file, done.size());
+        } else if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+    }
+
+    public synchronized boolean isDone(String ref) {
+        return done.contains(ref);
+    }
+
+    public synchronized void markDone(String ref) {
+        if (!done.add(ref)) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(ref);
+            writer.newLine();
+        } catch (IOException e) {
+            log.warn("Could not write import checkpoint for line {}: {}", ref, e.getMessage());
+        }
+    }
+
+    /**
+     * Ends the run: the next import starts from scratch.
+     */
+    public synchronized void clear() {
+        done.clear();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete import checkpoint {}: {}", file, e.getMessage());
+        }
+    }
+}
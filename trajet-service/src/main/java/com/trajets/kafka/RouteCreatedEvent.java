@@ -3,11 +3,19 @@ package com.trajets.kafka;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 public class RouteCreatedEvent {
     private Long routeId;
     private String routeName;
     private String direction;
-    private String geometry;
-}
\ No newline at end of file
+    private String encodedGeometry; // see EncodedPolyline
+    private List<StopPoint> stops; // in route order
+
+    /**
+     * A stop served by the route, with the id it has in this service's stops table.
+     */
+    public record StopPoint(Long stopId, int sequence, String name, double latitude, double longitude) {}
+}
@@ -1,6 +1,7 @@
 // src/main/java/com/trajets/model/Line.java
 package com.trajets.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -8,6 +9,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "lines")
 @Data
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Route.line is a lazy proxy
 public class Line {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
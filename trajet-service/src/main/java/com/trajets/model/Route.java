@@ -1,12 +1,17 @@
 // src/main/java/com/trajets/model/Route.java
 package com.trajets.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.trajets.geo.EncodedPolyline;
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
+// Not @Data: its toString/equals/hashCode would decode the whole geometry through getGeometry()
 @Entity
 @Table(name = "routes")
-@Data
+@Getter
+@Setter
 public class Route {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,8 +25,44 @@ public class Route {
     private String name; // e.g., "Harhoura → Bab El Had"
     
     @Column(columnDefinition = "TEXT")
-    private String geometry; // GeoJSON LineString
+    private String geometry; // Legacy GeoJSON, only set on routes imported before encodedGeometry
+    
+    @JsonIgnore
+    @Column(columnDefinition = "TEXT")
+    private String encodedGeometry; // One polyline6 per segment, space-separated (see EncodedPolyline)
+    
+    // Precomputed from the geometry at import; internal, the API only exposes the GeoJSON geometry
+    @JsonIgnore
+    private Double minLatitude;
+    @JsonIgnore
+    private Double minLongitude;
+    @JsonIgnore
+    private Double maxLatitude;
+    @JsonIgnore
+    private Double maxLongitude;
+    @JsonIgnore
+    private Double lengthMeters;
+    @JsonIgnore
+    private Integer vertexCount;
     
     @Column(length = 20)
     private String direction; // GOING, RETURN, CIRCULAR
+    
+    /**
+     * GeoJSON MultiLineString, generated from the encoded geometry on demand
+     */
+    public String getGeometry() {
+        return encodedGeometry != null ? EncodedPolyline.toGeoJson(encodedGeometry) : geometry;
+    }
+    
+    public void setEncodedGeometry(String encodedGeometry) {
+        this.encodedGeometry = encodedGeometry;
+        EncodedPolyline.Summary summary = EncodedPolyline.summarize(encodedGeometry != null ? encodedGeometry : "");
+        minLatitude = summary.minLatitude();
+        minLongitude = summary.minLongitude();
+        maxLatitude = summary.maxLatitude();
+        maxLongitude = summary.maxLongitude();
+        lengthMeters = summary.lengthMeters();
+        vertexCount = summary.vertexCount();
+    }
 }
\ No newline at end of file
@@ -1,11 +1,17 @@
 // src/main/java/com/trajets/repository/LineRepository.java
 package com.trajets.repository;
 
+import com.trajets.dto.CatalogStamp;
 import com.trajets.model.Line;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
 import java.util.Optional;
 
 public interface LineRepository extends JpaRepository<Line, Long> {
     Optional<Line> findByRef(String ref);
     boolean existsByRef(String ref);
+
+    @Query("SELECT new com.trajets.dto.CatalogStamp(COUNT(l), MAX(l.updatedAt)) FROM Line l")
+    CatalogStamp findCatalogStamp();
 }
\ No newline at end of file
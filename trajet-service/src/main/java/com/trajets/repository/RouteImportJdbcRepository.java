@@ -0,0 +1,107 @@
+package com.trajets.repository;
+
+import com.trajets.model.Stop;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set-based writes used by the line import. Entities keep IDENTITY ids, which rules out Hibernate
+ * insert batching, so the bulk inserts here go through JDBC batches instead and read the generated
+ * ids back in one round trip. Runs in the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RouteImportJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public interface StopRowHandler {
+        void accept(long id, double latitude, double longitude, String osmNodeId);
+    }
+
+    /**
+     * Streams the location and OSM node id of every stop.
+     */
+    public void forEachStop(StopRowHandler handler) {
+        jdbcTemplate.query("SELECT id, latitude, longitude, osm_node_id FROM stops", (ResultSet row) -> {
+            handler.accept(row.getLong(1), row.getDouble(2), row.getDouble(3), row.getString(4));
+        });
+    }
+
+    /**
+     * Deletes a line's routes and their route_stops, children first.
+     */
+    public void deleteRoutesOfLine(Long lineId) {
+        jdbcTemplate.update("DELETE FROM route_stops WHERE route_id IN (SELECT id FROM routes WHERE line_id = ?)", lineId);
+        jdbcTemplate.update("DELETE FROM routes WHERE line_id = ?", lineId);
+    }
+
+    /**
+     * Inserts the stops in one batch and sets their generated ids.
+     */
+    public void insertStops(List<Stop> stops) {
+        if (stops.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute(connection -> connection.prepareStatement(
+                "INSERT INTO stops (name, latitude, longitude, address, osm_node_id) VALUES (?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS), (PreparedStatement statement) -> {
+            for (Stop stop : stops) {
+                statement.setString(1, stop.getName());
+                statement.setDouble(2, stop.getLatitude());
+                statement.setDouble(3, stop.getLongitude());
+                statement.setString(4, stop.getAddress());
+                if (stop.getOsmNodeId() != null) {
+                    statement.setString(5, stop.getOsmNodeId());
+                } else {
+                    statement.setNull(5, Types.VARCHAR);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            List<Long> ids = new ArrayList<>(stops.size());
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                while (keys.next()) {
+                    ids.add(keys.getLong(1));
+                }
+            }
+            if (ids.size() != stops.size()) {
+                throw new IllegalStateException("Expected " + stops.size() + " generated stop ids, got " + ids.size());
+            }
+            for (int i = 0; i < stops.size(); i++) {
+                stops.get(i).setId(ids.get(i));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Inserts a route's stops in one batch; stopIds[i] gets stop_order stopOrders[i].
+     */
+    public void insertRouteStops(Long routeId, long[] stopIds, int[] stopOrders) {
+        jdbcTemplate.batchUpdate("INSERT INTO route_stops (route_id, stop_id, stop_order) VALUES (?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        statement.setLong(1, routeId);
+                        statement.setLong(2, stopIds[i]);
+                        statement.setInt(3, stopOrders[i]);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return stopIds.length;
+                    }
+                });
+    }
+}
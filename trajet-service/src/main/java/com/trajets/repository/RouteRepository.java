@@ -1,11 +1,19 @@
 // src/main/java/com/trajets/repository/RouteRepository.java
 package com.trajets.repository;
 
+import com.trajets.dto.RouteRow;
 import com.trajets.model.Route;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface RouteRepository extends JpaRepository<Route, Long> {
     List<Route> findByLineId(Long lineId);
     void deleteByLineId(Long lineId);
+
+    @Query("SELECT new com.trajets.dto.RouteRow(r.id, r.name, r.direction, r.encodedGeometry, "
+            + "CASE WHEN r.encodedGeometry IS NULL THEN r.geometry END) "
+            + "FROM Route r WHERE r.line.id = :lineId ORDER BY r.id")
+    List<RouteRow> findRowsByLineId(@Param("lineId") Long lineId);
 }
\ No newline at end of file
@@ -1,11 +1,19 @@
 // src/main/java/com/trajets/repository/RouteStopRepository.java
 package com.trajets.repository;
 
+import com.trajets.dto.RouteStopRow;
 import com.trajets.model.RouteStop;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
 
 public interface RouteStopRepository extends JpaRepository<RouteStop, Long> {
     List<RouteStop> findByRouteIdOrderByStopOrder(Long routeId);
     void deleteByRouteId(Long routeId);
+
+    @Query("SELECT new com.trajets.dto.RouteStopRow(rs.route.id, s.id, s.name, s.latitude, s.longitude, rs.stopOrder) "
+            + "FROM RouteStop rs JOIN rs.stop s WHERE rs.route.line.id = :lineId ORDER BY rs.route.id, rs.stopOrder")
+    List<RouteStopRow> findRowsByLineId(@Param("lineId") Long lineId);
 }
\ No newline at end of file
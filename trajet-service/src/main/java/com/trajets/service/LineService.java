@@ -1,20 +1,29 @@
 // src/main/java/com/trajets/service/LineService.java
 package com.trajets.service;
 
+import com.trajets.dto.CatalogStamp;
 import com.trajets.dto.CsvRouteRecord;
+import com.trajets.dto.LineDetails;
 import com.trajets.dto.OsmRouteData;
+import com.trajets.dto.OsmStopData;
+import com.trajets.dto.RouteStopRow;
+import com.trajets.geo.GeoJsonGeometry;
 import com.trajets.kafka.RouteCreatedEvent;
 import com.trajets.kafka.RouteEventProducer;
 import com.trajets.model.*;
 import com.trajets.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.time.ZoneId;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
@@ -23,70 +32,72 @@ public class LineService {
     
     private final LineRepository lineRepository;
     private final RouteRepository routeRepository;
-    private final StopRepository stopRepository;
+    private final RouteImportJdbcRepository routeImportRepository;
     private final RouteStopRepository routeStopRepository;
-    private final OsmImportService osmImportService;
     private final RouteEventProducer routeEventProducer;
     
+    // Part of every ETag; bump when the JSON of line, route or stop responses changes
+    private static final String ETAG_FORMAT = "1";
+    
+    @Value("${import.stop-merge-meters:15}")
+    private double stopMergeMeters;
+    
+    private StopIndex stopIndex; // known stops during an import run, see beginImport
+    
     /**
-     * Import a line by trying multiple route records until finding valid data
-     * Returns true only if successfully imported with valid geometry and stops
+     * Route data chosen for a line: the first CSV option whose OSM relation had valid data.
      */
-    @Transactional
-    public boolean importLine(String ref, List<CsvRouteRecord> routeRecords) {
+    public record FetchedLine(String ref, CsvRouteRecord record, OsmRouteData data) {}
+
+    /**
+     * Choose a line's route by trying its route records, in CSV order, against relations fetched in bulk
+     * (see OsmImportService.fetchRoutesData). Needs no network or transaction.
+     */
+    public Optional<FetchedLine> selectLine(String ref, List<CsvRouteRecord> routeRecords,
+                                            Map<String, OsmRouteData> relations) {
         log.info("Attempting to import line: {} ({} route options)", ref, routeRecords.size());
         
-        OsmRouteData validRouteData = null;
-        CsvRouteRecord usedRecord = null;
-        
         // Try each route record until we find one with valid data
         for (CsvRouteRecord record : routeRecords) {
             log.info("  Trying OSM relation: {} - {}", record.getOsmRelationId(), record.getName());
             
-            try {
-                Optional<OsmRouteData> osmDataOpt = osmImportService.fetchRouteData(
+            OsmRouteData osmData = relations.get(record.getOsmRelationId());
+            if (osmData == null) {
+                log.warn("  ✗ Relation {} does not exist or failed to fetch", 
                         record.getOsmRelationId());
-                
-                if (osmDataOpt.isEmpty()) {
-                    log.warn("  ✗ Relation {} does not exist or failed to fetch", 
-                            record.getOsmRelationId());
-                    continue;
-                }
-                
-                OsmRouteData osmData = osmDataOpt.get();
-                
-                // Validate the data
-                ValidationResult validation = validateRouteData(osmData);
-                if (!validation.isValid()) {
-                    log.warn("  ✗ Relation {} is invalid: {}", 
-                            record.getOsmRelationId(), validation.getReason());
-                    continue;
-                }
-                
-                // Found valid data!
-                validRouteData = osmData;
-                usedRecord = record;
-                log.info("  ✓ Found valid data in relation: {}", record.getOsmRelationId());
-                break;
-                
-            } catch (Exception e) {
-                log.error("  ✗ Error processing relation {}: {}", 
-                        record.getOsmRelationId(), e.getMessage());
+                continue;
+            }
+            
+            // Validate the data
+            ValidationResult validation = validateRouteData(osmData);
+            if (!validation.isValid()) {
+                log.warn("  ✗ Relation {} is invalid: {}", 
+                        record.getOsmRelationId(), validation.getReason());
+                continue;
             }
+            
+            // Found valid data!
+            log.info("  ✓ Found valid data in relation: {}", record.getOsmRelationId());
+            return Optional.of(new FetchedLine(ref, record, osmData));
         }
         
         // If no valid route found, skip this line
-        if (validRouteData == null || usedRecord == null) {
-            log.error("✗ No valid route data found for line: {} (tried {} options)", 
-                    ref, routeRecords.size());
-            return false;
-        }
-        
-        // Import the valid route
+        log.error("✗ No valid route data found for line: {} (tried {} options)", 
+                ref, routeRecords.size());
+        return Optional.empty();
+    }
+    
+    /**
+     * Save a fetched line, its route and stops in one short transaction (the data was fetched before)
+     */
+    @Transactional
+    public boolean saveLine(FetchedLine fetched) {
         try {
-            return saveLineAndRoute(ref, usedRecord, validRouteData);
+            return saveLineAndRoute(fetched.ref(), fetched.record(), fetched.data());
         } catch (Exception e) {
-            log.error("✗ Failed to save line {}: {}", ref, e.getMessage(), e);
+            log.error("✗ Failed to save line {}: {}", fetched.ref(), e.getMessage(), e);
+            // Nothing of a failed line is kept (this also drops its stops from the stop index)
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
     }
@@ -96,19 +107,10 @@ public class LineService {
      */
     private ValidationResult validateRouteData(OsmRouteData osmData) {
         // Check geometry exists and is not empty
-        if (osmData.getGeometryGeoJson() == null || osmData.getGeometryGeoJson().trim().isEmpty()) {
+        if (osmData.getEncodedGeometry() == null || osmData.getEncodedGeometry().isBlank()) {
             return ValidationResult.invalid("Geometry is empty");
         }
         
-        // Check geometry is valid JSON
-        try {
-            if (!osmData.getGeometryGeoJson().contains("coordinates")) {
-                return ValidationResult.invalid("Geometry missing coordinates");
-            }
-        } catch (Exception e) {
-            return ValidationResult.invalid("Geometry is not valid JSON");
-        }
-        
         // Check has at least some stops
         if (osmData.getStops() == null || osmData.getStops().isEmpty()) {
             return ValidationResult.invalid("No stops found");
@@ -150,46 +152,57 @@ public class LineService {
         
         log.info("  Line saved: {} (ID: {})", line.getRef(), line.getId());
         
-        // Delete any existing routes for this line (for re-import)
-        routeRepository.deleteByLineId(line.getId());
+        // Delete any existing routes for this line (for re-import), route_stops first
+        routeImportRepository.deleteRoutesOfLine(line.getId());
         
         // Create the Route
         Route route = new Route();
         route.setLine(line);
         route.setName(csvRecord.getName());
-        route.setGeometry(osmData.getGeometryGeoJson());
+        route.setEncodedGeometry(osmData.getEncodedGeometry());
         route.setDirection(determineDirection(csvRecord.getName()));
         
         route = routeRepository.save(route);
-        log.info("  Route saved: {} ({}) - ID: {}", 
-                route.getName(), route.getDirection(), route.getId());
+        log.info("  Route saved: {} ({}) - ID: {}, {} points, {} m", 
+                route.getName(), route.getDirection(), route.getId(),
+                route.getVertexCount(), Math.round(route.getLengthMeters()));
         
-        // Publish RouteCreatedEvent
-        RouteCreatedEvent event = new RouteCreatedEvent(route.getId(), route.getName(), route.getDirection(), route.getGeometry());
-        routeEventProducer.publish(event);
-        log.info("  RouteCreatedEvent published for route ID: {}", route.getId());
-
-        // Save stops
-        int savedStops = 0;
-        for (var stopData : osmData.getStops()) {
-            // Skip stops without coordinates
+        // Save stops: resolve them in memory, insert the new ones and the route_stops in batches
+        List<OsmStopData> stopsData = new ArrayList<>();
+        for (OsmStopData stopData : osmData.getStops()) {
             if (stopData.getLatitude() == null || stopData.getLongitude() == null) {
                 log.warn("    Skipping stop without coordinates: {}", stopData.getName());
                 continue;
             }
-            
-            Stop stop = findOrCreateStop(stopData);
-            
-            RouteStop routeStop = new RouteStop();
-            routeStop.setRoute(route);
-            routeStop.setStop(stop);
-            routeStop.setStopOrder(stopData.getOrder());
-            
-            routeStopRepository.save(routeStop);
-            savedStops++;
+            stopsData.add(stopData);
         }
+        long[] stopIds = resolveStops(stopsData);
+        int[] stopOrders = stopsData.stream().mapToInt(OsmStopData::getOrder).toArray();
+        routeImportRepository.insertRouteStops(route.getId(), stopIds, stopOrders);
         
-        log.info("  Stops saved: {} (total in OSM: {})", savedStops, osmData.getStops().size());
+        log.info("  Stops saved: {} (total in OSM: {})", stopIds.length, osmData.getStops().size());
+
+        // Publish RouteCreatedEvent once the route and its stops are committed: bus-service caches the
+        // route and deploys buses on it, so it must never hear of a route that was rolled back
+        List<RouteCreatedEvent.StopPoint> stopPoints = new ArrayList<>(stopIds.length);
+        for (int i = 0; i < stopIds.length; i++) {
+            OsmStopData stopData = stopsData.get(i);
+            stopPoints.add(new RouteCreatedEvent.StopPoint(stopIds[i], stopOrders[i], stopData.getName(),
+                    stopData.getLatitude(), stopData.getLongitude()));
+        }
+        RouteCreatedEvent event = new RouteCreatedEvent(route.getId(), route.getName(), route.getDirection(),
+                route.getEncodedGeometry(), stopPoints);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    routeEventProducer.publish(event);
+                    log.info("  RouteCreatedEvent published for route ID: {}", event.getRouteId());
+                } catch (Exception e) {
+                    log.error("✗ Route {} saved but RouteCreatedEvent not published: {}", event.getRouteId(), e.getMessage());
+                }
+            }
+        });
         log.info("✓ Successfully imported line: {}", ref);
         
         return true;
@@ -223,33 +236,89 @@ public class LineService {
     }
     
     /**
-     * Find or create stop
+     * Load the known stops into memory for an import run; stop resolution then needs no queries.
      */
-    private Stop findOrCreateStop(com.trajets.dto.OsmStopData stopData) {
-        // Try by OSM node ID
-        if (stopData.getNodeId() != null) {
-            Optional<Stop> existing = stopRepository.findByOsmNodeId(stopData.getNodeId());
-            if (existing.isPresent()) {
-                return existing.get();
-            }
+    public synchronized void beginImport() {
+        StopIndex index = new StopIndex(stopMergeMeters);
+        routeImportRepository.forEachStop((id, latitude, longitude, osmNodeId) ->
+                index.add(new StopIndex.Entry(id, latitude, longitude, osmNodeId)));
+        stopIndex = index;
+        log.info("Stop index loaded: {} stops (merge tolerance {} m)", index.size(), stopMergeMeters);
+    }
+    
+    /**
+     * Release the stop index at the end of an import run.
+     */
+    public synchronized void endImport() {
+        stopIndex = null;
+    }
+    
+    /**
+     * Stop ids for the given stop data, in the same order. A stop matches an existing one with the same
+     * OSM node ID, or else the nearest within import.stop-merge-meters unless both have node IDs; the rest
+     * are created in one batch and indexed, so a stop listed twice, or a near-duplicate from another line,
+     * resolves to the same row.
+     */
+    private synchronized long[] resolveStops(List<OsmStopData> stopsData) {
+        if (stopIndex == null) {
+            beginImport();
         }
+        StopIndex index = stopIndex;
         
-        // Try by coordinates (within ~10m)
-        Optional<Stop> existing = stopRepository.findFirstByLatitudeAndLongitude(
-                stopData.getLatitude(), stopData.getLongitude());
-        
-        if (existing.isPresent()) {
-            return existing.get();
+        long[] stopIds = new long[stopsData.size()];
+        Stop[] createdFor = new Stop[stopsData.size()]; // new stops get their ids once inserted
+        List<Stop> created = new ArrayList<>();
+        StopIndex pending = new StopIndex(stopMergeMeters); // this route's new stops, by position in created
+        for (int i = 0; i < stopsData.size(); i++) {
+            OsmStopData stopData = stopsData.get(i);
+            StopIndex.Entry known = index.find(stopData.getNodeId(), stopData.getLatitude(), stopData.getLongitude());
+            if (known != null) {
+                stopIds[i] = known.id();
+                continue;
+            }
+            StopIndex.Entry sameRoute = pending.find(stopData.getNodeId(), stopData.getLatitude(), stopData.getLongitude());
+            if (sameRoute != null) {
+                createdFor[i] = created.get((int) sameRoute.id());
+                continue;
+            }
+            Stop stop = new Stop();
+            stop.setName(stopData.getName());
+            stop.setLatitude(stopData.getLatitude());
+            stop.setLongitude(stopData.getLongitude());
+            stop.setOsmNodeId(stopData.getNodeId());
+            pending.add(new StopIndex.Entry(created.size(), stop.getLatitude(), stop.getLongitude(), stop.getOsmNodeId()));
+            created.add(stop);
+            createdFor[i] = stop;
         }
         
-        // Create new
-        Stop stop = new Stop();
-        stop.setName(stopData.getName());
-        stop.setLatitude(stopData.getLatitude());
-        stop.setLongitude(stopData.getLongitude());
-        stop.setOsmNodeId(stopData.getNodeId());
+        routeImportRepository.insertStops(created);
+        for (int i = 0; i < stopIds.length; i++) {
+            if (createdFor[i] != null) {
+                stopIds[i] = createdFor[i].getId();
+            }
+        }
         
-        return stopRepository.save(stop);
+        List<StopIndex.Entry> added = new ArrayList<>(created.size());
+        for (Stop stop : created) {
+            StopIndex.Entry entry = new StopIndex.Entry(stop.getId(), stop.getLatitude(), stop.getLongitude(), stop.getOsmNodeId());
+            index.add(entry);
+            added.add(entry);
+        }
+        if (!added.isEmpty()) {
+            log.info("  New stops: {}", added.size());
+            // The rows vanish if the line's transaction rolls back; so must their index entries
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        synchronized (LineService.this) {
+                            added.forEach(index::remove);
+                        }
+                    }
+                }
+            });
+        }
+        return stopIds;
     }
     
     public List<Line> getAllLines() {
@@ -260,6 +329,47 @@ public class LineService {
         return lineRepository.findByRef(ref);
     }
     
+    /**
+     * Version of the whole catalog (lines, routes and stops), for HTTP validators: it changes on every
+     * import that adds or updates a line, and with the response format (ETAG_FORMAT)
+     */
+    public String getCatalogVersion() {
+        CatalogStamp stamp = lineRepository.findCatalogStamp();
+        return ETAG_FORMAT + "-" + stamp.lines() + "-" + toMillis(stamp.lastUpdate());
+    }
+    
+    /**
+     * Version of one line's data (its routes and stops included); the catalog version is part of it
+     * because stops are shared between lines
+     */
+    public String getLineVersion(Line line) {
+        return getCatalogVersion() + "-" + line.getId() + "-" + toMillis(line.getUpdatedAt());
+    }
+    
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+    }
+    
+    /**
+     * A line with its routes and ordered stops, in two projection queries whatever the number of routes
+     * and stops. Geometries stay encoded until the response is written (see GeoJsonGeometry).
+     */
+    @Transactional(readOnly = true)
+    public LineDetails getLineDetails(Line line) {
+        Map<Long, List<LineDetails.StopDetails>> stopsByRoute = new HashMap<>();
+        for (RouteStopRow row : routeStopRepository.findRowsByLineId(line.getId())) {
+            stopsByRoute.computeIfAbsent(row.routeId(), id -> new ArrayList<>())
+                    .add(new LineDetails.StopDetails(row.stopId(), row.name(), row.latitude(), row.longitude(), row.stopOrder()));
+        }
+        
+        List<LineDetails.RouteDetails> routes = routeRepository.findRowsByLineId(line.getId()).stream()
+                .map(route -> new LineDetails.RouteDetails(route.id(), route.name(), route.direction(),
+                        new GeoJsonGeometry(route.encodedGeometry(), route.legacyGeometry()),
+                        List.copyOf(stopsByRoute.getOrDefault(route.id(), List.of()))))
+                .toList();
+        return new LineDetails(line, routes);
+    }
+    
     /**
      * Validation result helper class
      */
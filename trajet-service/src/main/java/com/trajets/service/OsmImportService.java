@@ -1,152 +1,79 @@
 package com.trajets.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.trajets.dto.OsmRouteData;
-import com.trajets.dto.OsmStopData;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class OsmImportService {
 
-    private static final String OVERPASS_API_URL = "https://overpass-api.de/api/interpreter";
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private final OverpassClient overpassClient;
+    private final OverpassResponseParser responseParser;
+    private final OsmPbfExtract extract;
 
-    public Optional<OsmRouteData> fetchRouteData(String relationId) {
-        try {
-            // Query: relation + members with explicit geometry
-            String query = String.format("[out:json][timeout:60]; relation(%s); out geom;", relationId);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
-            body.add("data", query);
-
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                    OVERPASS_API_URL, new HttpEntity<>(body, headers), String.class);
-
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                return Optional.empty();
-            }
-
-            return parseOverpassResponse(response.getBody(), relationId);
-
-        } catch (Exception e) {
-            log.error("Failed to fetch relation {}: {}", relationId, e.getMessage());
-            return Optional.empty();
-        }
+    public OsmImportService(OverpassClient overpassClient, ObjectMapper objectMapper,
+                            @Value("${import.pbf-file:}") String pbfFile) {
+        this.overpassClient = overpassClient;
+        this.responseParser = new OverpassResponseParser(objectMapper.getFactory());
+        this.extract = pbfFile.isBlank() ? null : new OsmPbfExtract(Path.of(pbfFile));
     }
 
-    private Optional<OsmRouteData> parseOverpassResponse(String json, String relationId) {
-        try {
-            JsonNode root = objectMapper.readTree(json);
-            JsonNode elements = root.path("elements");
-            JsonNode relation = null;
-
-            for (JsonNode el : elements) {
-                if ("relation".equals(el.path("type").asText()) && 
-                    el.path("id").asLong() == Long.parseLong(relationId)) {
-                    relation = el;
-                    break;
-                }
-            }
-
-            if (relation == null) return Optional.empty();
-
-            OsmRouteData data = new OsmRouteData();
-            data.setRelationId(relationId);
-            data.setRef(relation.path("tags").path("ref").asText("Unknown"));
-            data.setName(relation.path("tags").path("name").asText("Unnamed"));
-
-            // 1. Use MultiLineString to render segments exactly as they are in OSM
-            // This avoids "spider webs" caused by artificially connecting distant points
-            data.setGeometryGeoJson(buildMultiLineGeometry(relation));
-
-            // 2. Extract Stops
-            data.setStops(extractStops(relation));
-
-            return Optional.of(data);
+    /**
+     * True when relations are read from a local .osm.pbf extract (import.pbf-file) instead of Overpass.
+     * Each read scans the whole file, so callers should ask for all relations at once.
+     */
+    public boolean usesLocalExtract() {
+        return extract != null;
+    }
 
-        } catch (Exception e) {
-            log.error("Error parsing OSM data: {}", e.getMessage());
-            return Optional.empty();
-        }
+    public Optional<OsmRouteData> fetchRouteData(String relationId) {
+        return Optional.ofNullable(fetchRoutesData(List.of(relationId)).get(relationId));
     }
 
     /**
-     * Builds a GeoJSON MultiLineString.
-     * Instead of stitching into one line, we return a collection of lines.
-     * This prevents visual artifacts when data has gaps or is unordered.
+     * Fetches several relations with a single Overpass query, or from the local extract, and returns
+     * them by relation id. Relations that do not exist or could not be fetched are absent from the result.
      */
-    private String buildMultiLineGeometry(JsonNode relation) throws Exception {
-        List<List<double[]>> multiLineCoordinates = new ArrayList<>();
-        JsonNode members = relation.path("members");
-
-        if (members.isArray()) {
-            for (JsonNode member : members) {
-                // Only process ways (roads)
-                if ("way".equals(member.path("type").asText()) && 
-                    !member.path("role").asText().contains("platform") &&
-                    !member.path("role").asText().contains("stop") &&
-                    member.has("geometry")) {
-                    
-                    List<double[]> segment = new ArrayList<>();
-                    for (JsonNode pt : member.path("geometry")) {
-                        // GeoJSON format: [Longitude, Latitude]
-                        segment.add(new double[]{pt.get("lon").asDouble(), pt.get("lat").asDouble()});
-                    }
-
-                    if (!segment.isEmpty()) {
-                        multiLineCoordinates.add(segment);
-                    }
-                }
+    public Map<String, OsmRouteData> fetchRoutesData(Collection<String> relationIds) {
+        if (extract != null) {
+            try {
+                return extract.readRoutes(relationIds);
+            } catch (Exception e) {
+                log.error("Failed to read relations from the OSM extract: {}", e.getMessage());
+                return Map.of();
             }
         }
 
-        if (multiLineCoordinates.isEmpty()) return "{}";
-
-        Map<String, Object> geoJson = new HashMap<>();
-        geoJson.put("type", "MultiLineString");
-        geoJson.put("coordinates", multiLineCoordinates);
-
-        return objectMapper.writeValueAsString(geoJson);
-    }
+        // Sorted ids keep the query text, and therefore its cache entry, stable across runs
+        List<String> ids = relationIds.stream().distinct().sorted().toList();
+        try {
+            // Query: relations + members with explicit geometry
+            String query = String.format("[out:json][timeout:%d]; relation(id:%s); out geom;",
+                    Math.min(180, 60 + 5 * ids.size()), String.join(",", ids));
 
-    private List<OsmStopData> extractStops(JsonNode relation) {
-        List<OsmStopData> stops = new ArrayList<>();
-        JsonNode members = relation.path("members");
-        int order = 0;
+            Optional<Path> body = overpassClient.execute(query);
+            if (body.isEmpty()) {
+                return Map.of();
+            }
 
-        if (members.isArray()) {
-            for (JsonNode member : members) {
-                String role = member.path("role").asText();
-                if ("node".equals(member.path("type").asText()) && 
-                   (role.contains("stop") || role.contains("platform"))) {
-                    
-                    // Check for geometry in the member directly (provided by "out geom")
-                    if (member.has("lat") && member.has("lon")) {
-                        OsmStopData stop = new OsmStopData();
-                        stop.setNodeId(String.valueOf(member.path("ref").asLong()));
-                        stop.setName(member.path("name").asText("Stop " + stop.getNodeId()));
-                        stop.setLatitude(member.get("lat").asDouble());
-                        stop.setLongitude(member.get("lon").asDouble());
-                        stop.setOrder(++order);
-                        stops.add(stop);
-                    }
-                }
+            try (InputStream in = Files.newInputStream(body.get())) {
+                return responseParser.parse(in, new HashSet<>(ids));
             }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of();
+        } catch (Exception e) {
+            log.error("Failed to fetch relations {}: {}", ids, e.getMessage());
+            return Map.of();
         }
-        return stops;
     }
-}
\ No newline at end of file
+}
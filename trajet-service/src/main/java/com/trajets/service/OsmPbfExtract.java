@@ -0,0 +1,699 @@
+package com.trajets.service;
+
+import com.trajets.dto.OsmRouteData;
+import com.trajets.dto.OsmStopData;
+import com.trajets.geo.EncodedPolyline;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Extracts bus route relations from a local .osm.pbf file, producing the same OsmRouteData as the
+ * Overpass path. The file is read in three passes over its data blocks: relations (to learn which ways
+ * and stop nodes are needed), then those ways (to learn their nodes), then the nodes. Blocks are
+ * independent, so each pass decodes them in parallel, and the later passes only revisit blocks that
+ * held ways or nodes. Node coordinates are kept as fixed-point ints (1e-7 degrees) next to a sorted
+ * long[] of the wanted ids, so the lookup costs 16 bytes per node and no boxing.
+ * <p>
+ * Only the parts of the PBF format needed here are decoded (see https://wiki.openstreetmap.org/wiki/PBF_Format):
+ * uncompressed and zlib blobs, plain and dense nodes, ways and relations.
+ */
+@Slf4j
+class OsmPbfExtract {
+
+    private static final int MEMBER_NODE = 0;
+    private static final int MEMBER_WAY = 1;
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    private final Path file;
+
+    OsmPbfExtract(Path file) {
+        this.file = file;
+    }
+
+    private record BlobRef(long offset, int size) {}
+
+    private record RelationData(long id, String ref, String name, long[] memberIds, int[] memberTypes, String[] roles) {}
+
+    /**
+     * Returns the requested relations found in the extract, by relation id.
+     */
+    Map<String, OsmRouteData> readRoutes(Collection<String> relationIds) throws IOException {
+        long started = System.currentTimeMillis();
+        Set<Long> wantedRelations = new HashSet<>();
+        for (String id : relationIds) {
+            try {
+                wantedRelations.add(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring relation id {}: not a number", id);
+            }
+        }
+
+        List<BlobRef> blobs = indexBlobs();
+        boolean[] hasNodes = new boolean[blobs.size()];
+        boolean[] hasWays = new boolean[blobs.size()];
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Pass 1: the requested relations, and which blocks hold ways and nodes
+            Map<Long, RelationData> relations = new ConcurrentHashMap<>();
+            forEachBlock(channel, blobs, IntStream.range(0, blobs.size()), (index, block) -> {
+                for (Proto group : block.groups) {
+                    while (group.hasNext()) {
+                        int tag = group.tag();
+                        switch (tag >>> 3) {
+                            case 1, 2 -> { hasNodes[index] = true; group.skip(tag); }
+                            case 3 -> { hasWays[index] = true; group.skip(tag); }
+                            case 4 -> {
+                                RelationData relation = readRelation(group.message(), block.strings, wantedRelations);
+                                if (relation != null) {
+                                    relations.put(relation.id(), relation);
+                                }
+                            }
+                            default -> group.skip(tag);
+                        }
+                    }
+                }
+            });
+
+            LongList wayIds = new LongList();
+            LongList stopIds = new LongList();
+            for (RelationData relation : relations.values()) {
+                for (int i = 0; i < relation.memberIds().length; i++) {
+                    boolean stopRole = isStopRole(relation.roles()[i]);
+                    if (relation.memberTypes()[i] == MEMBER_WAY && !stopRole) {
+                        wayIds.add(relation.memberIds()[i]);
+                    } else if (relation.memberTypes()[i] == MEMBER_NODE && stopRole) {
+                        stopIds.add(relation.memberIds()[i]);
+                    }
+                }
+            }
+            long[] wantedWays = wayIds.sortedDistinct();
+            long[] wantedStops = stopIds.sortedDistinct();
+
+            // Pass 2: node lists of the route ways
+            Map<Long, long[]> ways = new ConcurrentHashMap<>();
+            forEachBlock(channel, blobs, IntStream.range(0, blobs.size()).filter(i -> hasWays[i]), (index, block) -> {
+                for (Proto group : block.groups) {
+                    while (group.hasNext()) {
+                        int tag = group.tag();
+                        if (tag >>> 3 == 3) {
+                            readWay(group.message(), wantedWays, ways);
+                        } else {
+                            group.skip(tag);
+                        }
+                    }
+                }
+            });
+
+            LongList nodeIds = new LongList();
+            ways.values().forEach(nodeIds::addAll);
+            nodeIds.addAll(wantedStops);
+            long[] wantedNodes = nodeIds.sortedDistinct();
+            int[] latitudes = new int[wantedNodes.length];
+            int[] longitudes = new int[wantedNodes.length];
+            String[] stopNames = new String[wantedNodes.length];
+            Arrays.fill(latitudes, MISSING);
+
+            // Pass 3: coordinates of the nodes used, and names of the stops. Every node id has its own
+            // array slot, so parallel blocks never write to the same element.
+            NodeSink sink = (id, lat, lon, names) -> {
+                int slot = Arrays.binarySearch(wantedNodes, id);
+                if (slot >= 0) {
+                    latitudes[slot] = lat;
+                    longitudes[slot] = lon;
+                    if (Arrays.binarySearch(wantedStops, id) >= 0) {
+                        stopNames[slot] = names.get();
+                    }
+                }
+            };
+            forEachBlock(channel, blobs, IntStream.range(0, blobs.size()).filter(i -> hasNodes[i]), (index, block) -> {
+                for (Proto group : block.groups) {
+                    while (group.hasNext()) {
+                        int tag = group.tag();
+                        switch (tag >>> 3) {
+                            case 1 -> readNode(group.message(), block, sink);
+                            case 2 -> readDenseNodes(group.message(), block, sink);
+                            default -> group.skip(tag);
+                        }
+                    }
+                }
+            });
+
+            Map<String, OsmRouteData> result = new HashMap<>();
+            for (RelationData relation : relations.values()) {
+                result.put(String.valueOf(relation.id()),
+                        toRouteData(relation, ways, wantedNodes, latitudes, longitudes, stopNames));
+            }
+            log.info("Read {} of {} relations from {} in {} ms ({} ways, {} nodes, {} blocks)",
+                    result.size(), relationIds.size(), file.getFileName(), System.currentTimeMillis() - started,
+                    ways.size(), wantedNodes.length, blobs.size());
+            return result;
+        }
+    }
+
+    private OsmRouteData toRouteData(RelationData relation, Map<Long, long[]> ways, long[] nodeIds,
+                                     int[] latitudes, int[] longitudes, String[] stopNames) {
+        OsmRouteData data = new OsmRouteData();
+        data.setRelationId(String.valueOf(relation.id()));
+        data.setRef(relation.ref() != null ? relation.ref() : "Unknown");
+        data.setName(relation.name() != null ? relation.name() : "Unnamed");
+
+        double[] coordinates = new double[256];
+        int size = 0;
+        List<Integer> segmentStarts = new ArrayList<>();
+        for (int i = 0; i < relation.memberIds().length; i++) {
+            String role = relation.roles()[i];
+            long memberId = relation.memberIds()[i];
+
+            if (relation.memberTypes()[i] == MEMBER_WAY && !isStopRole(role)) {
+                long[] wayNodes = ways.get(memberId);
+                if (wayNodes == null) {
+                    continue; // outside the extract
+                }
+                int start = size;
+                for (long nodeId : wayNodes) {
+                    int slot = Arrays.binarySearch(nodeIds, nodeId);
+                    if (slot < 0 || latitudes[slot] == MISSING) {
+                        continue; // clipped by the extract boundary, like Overpass's null points
+                    }
+                    if (size + 2 > coordinates.length) {
+                        coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+                    }
+                    coordinates[size++] = longitudes[slot] / 1e7;
+                    coordinates[size++] = latitudes[slot] / 1e7;
+                }
+                if (size > start) {
+                    segmentStarts.add(start);
+                }
+            } else if (relation.memberTypes()[i] == MEMBER_NODE && isStopRole(role)) {
+                int slot = Arrays.binarySearch(nodeIds, memberId);
+                if (slot < 0 || latitudes[slot] == MISSING) {
+                    continue;
+                }
+                OsmStopData stop = new OsmStopData();
+                stop.setNodeId(String.valueOf(memberId));
+                stop.setName(stopNames[slot] != null ? stopNames[slot] : "Stop " + memberId);
+                stop.setLatitude(latitudes[slot] / 1e7);
+                stop.setLongitude(longitudes[slot] / 1e7);
+                stop.setOrder(data.getStops().size() + 1);
+                data.getStops().add(stop);
+            }
+        }
+        data.setEncodedGeometry(EncodedPolyline.encode(coordinates, size, segmentStarts));
+        return data;
+    }
+
+    private static boolean isStopRole(String role) {
+        return role.contains("stop") || role.contains("platform");
+    }
+
+    // ---- Block access --------------------------------------------------------------------------
+
+    /**
+     * Offsets and sizes of the OSMData blobs, read from the blob headers without touching the data.
+     */
+    private List<BlobRef> indexBlobs() throws IOException {
+        List<BlobRef> blobs = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 65536))) {
+            long position = 0;
+            while (true) {
+                int headerSize;
+                try {
+                    headerSize = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] header = in.readNBytes(headerSize);
+                if (header.length != headerSize) {
+                    throw new IOException("Truncated blob header at offset " + position);
+                }
+                String type = null;
+                int dataSize = 0;
+                Proto proto = new Proto(header, 0, header.length);
+                while (proto.hasNext()) {
+                    int tag = proto.tag();
+                    switch (tag >>> 3) {
+                        case 1 -> type = proto.string();
+                        case 3 -> dataSize = (int) proto.varint();
+                        default -> proto.skip(tag);
+                    }
+                }
+                position += 4 + headerSize;
+                if ("OSMData".equals(type)) {
+                    blobs.add(new BlobRef(position, dataSize));
+                }
+                in.skipNBytes(dataSize);
+                position += dataSize;
+            }
+        }
+        return blobs;
+    }
+
+    private interface BlockVisitor {
+        void visit(int index, Block block) throws IOException;
+    }
+
+    private void forEachBlock(FileChannel channel, List<BlobRef> blobs, IntStream indexes, BlockVisitor visitor)
+            throws IOException {
+        try {
+            indexes.parallel().forEach(index -> {
+                try {
+                    visitor.visit(index, Block.parse(readBlob(channel, blobs.get(index))));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Block " + index + " of " + file + ": " + e.getMessage(), e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+
+    private static byte[] readBlob(FileChannel channel, BlobRef ref) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ref.size());
+        long position = ref.offset();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Truncated blob at offset " + ref.offset());
+            }
+            position += read;
+        }
+
+        Proto blob = new Proto(buffer.array(), 0, ref.size());
+        int rawSize = 0;
+        Proto raw = null;
+        Proto zlib = null;
+        while (blob.hasNext()) {
+            int tag = blob.tag();
+            switch (tag >>> 3) {
+                case 1 -> raw = blob.message();
+                case 2 -> rawSize = (int) blob.varint();
+                case 3 -> zlib = blob.message();
+                default -> blob.skip(tag);
+            }
+        }
+        if (raw != null) {
+            return Arrays.copyOfRange(raw.buf, raw.pos, raw.limit);
+        }
+        if (zlib == null) {
+            throw new IOException("Unsupported blob compression (only raw and zlib are supported)");
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlib.buf, zlib.pos, zlib.limit - zlib.pos);
+            byte[] data = new byte[rawSize];
+            int inflated = 0;
+            while (inflated < rawSize && !inflater.finished()) {
+                int count = inflater.inflate(data, inflated, rawSize - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != rawSize) {
+                throw new IOException("Corrupt zlib blob: " + inflated + " of " + rawSize + " bytes");
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt zlib blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * A decoded PrimitiveBlock header; the groups are left undecoded for the pass to walk.
+     */
+    private static final class Block {
+        String[] strings = new String[0];
+        long granularity = 100;
+        long latOffset;
+        long lonOffset;
+        final List<Proto> groups = new ArrayList<>();
+
+        static Block parse(byte[] data) throws IOException {
+            Block block = new Block();
+            Proto proto = new Proto(data, 0, data.length);
+            while (proto.hasNext()) {
+                int tag = proto.tag();
+                switch (tag >>> 3) {
+                    case 1 -> {
+                        List<String> strings = new ArrayList<>();
+                        Proto table = proto.message();
+                        while (table.hasNext()) {
+                            int stringTag = table.tag();
+                            if (stringTag >>> 3 == 1) {
+                                strings.add(table.string());
+                            } else {
+                                table.skip(stringTag);
+                            }
+                        }
+                        block.strings = strings.toArray(new String[0]);
+                    }
+                    case 2 -> block.groups.add(proto.message());
+                    case 17 -> block.granularity = proto.varint();
+                    case 19 -> block.latOffset = proto.varint();
+                    case 20 -> block.lonOffset = proto.varint();
+                    default -> proto.skip(tag);
+                }
+            }
+            return block;
+        }
+
+        /**
+         * Raw coordinate to 1e-7 degrees: (offset + granularity * raw) is in nanodegrees.
+         */
+        int latitude(long raw) {
+            return (int) ((latOffset + granularity * raw) / 100);
+        }
+
+        int longitude(long raw) {
+            return (int) ((lonOffset + granularity * raw) / 100);
+        }
+    }
+
+    // ---- Entities -------------------------------------------------------------------------------
+
+    private static RelationData readRelation(Proto relation, String[] strings, Set<Long> wanted) throws IOException {
+        long id = 0;
+        LongList keys = new LongList();
+        LongList values = new LongList();
+        LongList roles = new LongList();
+        LongList memberIds = new LongList();
+        LongList types = new LongList();
+        while (relation.hasNext()) {
+            int tag = relation.tag();
+            switch (tag >>> 3) {
+                case 1 -> {
+                    id = relation.varint();
+                    if (!wanted.contains(id)) {
+                        return null;
+                    }
+                }
+                case 2 -> relation.repeated(tag, keys, false);
+                case 3 -> relation.repeated(tag, values, false);
+                case 8 -> relation.repeated(tag, roles, false);
+                case 9 -> relation.repeated(tag, memberIds, true);
+                case 10 -> relation.repeated(tag, types, false);
+                default -> relation.skip(tag);
+            }
+        }
+        if (!wanted.contains(id)) {
+            return null;
+        }
+
+        String ref = null;
+        String name = null;
+        for (int i = 0; i < keys.size; i++) {
+            String key = strings[(int) keys.values[i]];
+            if ("ref".equals(key)) {
+                ref = strings[(int) values.values[i]];
+            } else if ("name".equals(key)) {
+                name = strings[(int) values.values[i]];
+            }
+        }
+
+        int count = memberIds.size;
+        long[] ids = new long[count];
+        int[] memberTypes = new int[count];
+        String[] memberRoles = new String[count];
+        long memberId = 0;
+        for (int i = 0; i < count; i++) {
+            memberId += memberIds.values[i]; // delta coded
+            ids[i] = memberId;
+            memberTypes[i] = i < types.size ? (int) types.values[i] : MEMBER_NODE;
+            memberRoles[i] = i < roles.size ? strings[(int) roles.values[i]] : "";
+        }
+        return new RelationData(id, ref, name, ids, memberTypes, memberRoles);
+    }
+
+    private static void readWay(Proto way, long[] wanted, Map<Long, long[]> ways) throws IOException {
+        long id = 0;
+        boolean hasId = false;
+        LongList refs = new LongList();
+        while (way.hasNext()) {
+            int tag = way.tag();
+            switch (tag >>> 3) {
+                case 1 -> {
+                    id = way.varint();
+                    hasId = true;
+                }
+                case 8 -> {
+                    // The id comes first in practice, so unwanted ways skip their refs undecoded
+                    if (hasId && Arrays.binarySearch(wanted, id) < 0) {
+                        way.skip(tag);
+                    } else {
+                        way.repeated(tag, refs, true);
+                    }
+                }
+                default -> way.skip(tag);
+            }
+        }
+        if (refs.size == 0 || Arrays.binarySearch(wanted, id) < 0) {
+            return;
+        }
+        long nodeId = 0;
+        for (int i = 0; i < refs.size; i++) {
+            nodeId += refs.values[i];
+            refs.values[i] = nodeId;
+        }
+        ways.put(id, Arrays.copyOf(refs.values, refs.size));
+    }
+
+    private interface NodeSink {
+        /**
+         * Called for every node; names resolves the node's name tag only when asked.
+         */
+        void accept(long id, int latitude, int longitude, NameLookup names) throws IOException;
+    }
+
+    private interface NameLookup {
+        String get() throws IOException;
+    }
+
+    private static void readNode(Proto node, Block block, NodeSink sink) throws IOException {
+        long id = 0;
+        long lat = 0;
+        long lon = 0;
+        LongList keys = new LongList();
+        LongList values = new LongList();
+        while (node.hasNext()) {
+            int tag = node.tag();
+            switch (tag >>> 3) {
+                case 1 -> id = node.sint();
+                case 2 -> node.repeated(tag, keys, false);
+                case 3 -> node.repeated(tag, values, false);
+                case 8 -> lat = node.sint();
+                case 9 -> lon = node.sint();
+                default -> node.skip(tag);
+            }
+        }
+        sink.accept(id, block.latitude(lat), block.longitude(lon), () -> {
+            for (int i = 0; i < keys.size; i++) {
+                if ("name".equals(block.strings[(int) keys.values[i]])) {
+                    return block.strings[(int) values.values[i]];
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Dense nodes store ids and coordinates as parallel delta-coded arrays, and all tags in one
+     * keys_vals array where each node's key/value string indexes are terminated by a 0.
+     */
+    private static void readDenseNodes(Proto dense, Block block, NodeSink sink) throws IOException {
+        Proto ids = null;
+        Proto lats = null;
+        Proto lons = null;
+        Proto keysVals = null;
+        while (dense.hasNext()) {
+            int tag = dense.tag();
+            switch (tag >>> 3) {
+                case 1 -> ids = dense.message();
+                case 8 -> lats = dense.message();
+                case 9 -> lons = dense.message();
+                case 10 -> keysVals = dense.message();
+                default -> dense.skip(tag);
+            }
+        }
+        if (ids == null || lats == null || lons == null) {
+            return;
+        }
+
+        long id = 0;
+        long lat = 0;
+        long lon = 0;
+        while (ids.hasNext()) {
+            id += ids.sint();
+            lat += lats.sint();
+            lon += lons.sint();
+
+            // This node's tags, as [start, end) in keys_vals, so the name is decoded only for stops
+            int tagsStart = keysVals != null ? keysVals.pos : 0;
+            if (keysVals != null) {
+                while (keysVals.hasNext() && keysVals.varint() != 0) {
+                    keysVals.varint();
+                }
+            }
+            int tagsEnd = keysVals != null ? keysVals.pos : 0;
+            Proto tags = keysVals;
+            sink.accept(id, block.latitude(lat), block.longitude(lon), () -> {
+                if (tags == null) {
+                    return null;
+                }
+                Proto pairs = new Proto(tags.buf, tagsStart, tagsEnd - tagsStart);
+                while (pairs.hasNext()) {
+                    int key = (int) pairs.varint();
+                    if (key == 0 || !pairs.hasNext()) {
+                        break;
+                    }
+                    int value = (int) pairs.varint();
+                    if ("name".equals(block.strings[key])) {
+                        return block.strings[value];
+                    }
+                }
+                return null;
+            });
+        }
+    }
+
+    // ---- Protobuf wire format ---------------------------------------------------------------------
+
+    /**
+     * Reader over one protobuf message (a slice of a byte array).
+     */
+    private static final class Proto {
+        final byte[] buf;
+        int pos;
+        final int limit;
+
+        Proto(byte[] buf, int offset, int length) throws IOException {
+            if (offset < 0 || length < 0 || offset + length > buf.length) {
+                throw new IOException("Malformed protobuf: field runs past the end of its message");
+            }
+            this.buf = buf;
+            this.pos = offset;
+            this.limit = offset + length;
+        }
+
+        boolean hasNext() {
+            return pos < limit;
+        }
+
+        int tag() throws IOException {
+            return (int) varint();
+        }
+
+        long varint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= limit) {
+                    throw new IOException("Malformed protobuf: truncated varint");
+                }
+                byte b = buf[pos++];
+                result |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed protobuf: varint too long");
+        }
+
+        long sint() throws IOException {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        Proto message() throws IOException {
+            int length = (int) varint();
+            Proto message = new Proto(buf, pos, length);
+            pos += length;
+            return message;
+        }
+
+        String string() throws IOException {
+            Proto bytes = message();
+            return new String(buf, bytes.pos, bytes.limit - bytes.pos, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Appends a repeated integer field, whether it was written packed or as a single value.
+         */
+        void repeated(int tag, LongList out, boolean zigzag) throws IOException {
+            if ((tag & 7) == 2) {
+                Proto packed = message();
+                while (packed.hasNext()) {
+                    out.add(zigzag ? packed.sint() : packed.varint());
+                }
+            } else {
+                out.add(zigzag ? sint() : varint());
+            }
+        }
+
+        void skip(int tag) throws IOException {
+            switch (tag & 7) {
+                case 0 -> varint();
+                case 1 -> pos += 8;
+                case 2 -> message();
+                case 5 -> pos += 4;
+                default -> throw new IOException("Malformed protobuf: unsupported wire type " + (tag & 7));
+            }
+            if (pos > limit) {
+                throw new IOException("Malformed protobuf: field runs past the end of its message");
+            }
+        }
+    }
+
+    /**
+     * Growable long array, to avoid boxing ids.
+     */
+    private static final class LongList {
+        long[] values = new long[16];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(long[] more) {
+            if (size + more.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + more.length));
+            }
+            System.arraycopy(more, 0, values, size, more.length);
+            size += more.length;
+        }
+
+        long[] sortedDistinct() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, distinct);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.trajets.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trajets.importer.TokenBucketRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Runs Overpass queries through a local, content-addressed response cache. A response is stored under
+ * the SHA-256 of the endpoint and query text, which includes the relation ids, so the same query always
+ * maps to the same file. Fresh entries (younger than the TTL) are served without a request. Older ones
+ * are revalidated with the validators the server sent (ETag / Last-Modified) and served stale if the
+ * request fails. In offline mode only the cache is used, which makes re-imports deterministic and
+ * possible without network. Overpass reports timeouts and memory exhaustion as a 200 with a
+ * "runtime error" remark and partial elements; such responses are treated as failures and never cached.
+ */
+@Component
+@Slf4j
+public class OverpassClient {
+
+    private final RestTemplate restTemplate;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final JsonFactory jsonFactory;
+    private final String url;
+    private final Path cacheDir;
+    private final Duration ttl;
+    private final boolean offline;
+
+    public OverpassClient(RestTemplate restTemplate,
+                          TokenBucketRateLimiter overpassRateLimiter,
+                          ObjectMapper objectMapper,
+                          @Value("${import.overpass.url:https://overpass-api.de/api/interpreter}") String url,
+                          @Value("${import.overpass.cache-dir:data/overpass-cache}") String cacheDir,
+                          @Value("${import.overpass.cache-ttl:7d}") Duration ttl,
+                          @Value("${import.overpass.offline:false}") boolean offline) {
+        this.restTemplate = restTemplate;
+        this.rateLimiter = overpassRateLimiter;
+        this.jsonFactory = objectMapper.getFactory();
+        this.url = url;
+        this.cacheDir = Path.of(cacheDir);
+        this.ttl = ttl;
+        this.offline = offline;
+    }
+
+    /**
+     * Returns the file holding the response body for this query, fetching or revalidating it first if needed.
+     * Empty when the query cannot be answered (no network or server error, and nothing cached).
+     */
+    public Optional<Path> execute(String query) throws InterruptedException {
+        String key = cacheKey(query);
+        Path body = cacheDir.resolve(key + ".json");
+        Path metaFile = cacheDir.resolve(key + ".meta");
+        Properties meta = readMeta(metaFile);
+        boolean cached = meta != null && Files.exists(body);
+
+        if (cached && (offline || !isExpired(meta))) {
+            log.debug("Overpass cache hit {}", key);
+            return Optional.of(body);
+        }
+        if (offline) {
+            log.warn("Overpass cache miss in offline mode for query: {}", query);
+            return Optional.empty();
+        }
+
+        rateLimiter.acquire();
+        try {
+            Files.createDirectories(cacheDir);
+            Path download = Files.createTempFile(cacheDir, key, ".part");
+            try {
+                HttpStatus status = restTemplate.execute(url, HttpMethod.POST,
+                        request -> {
+                            request.getHeaders().setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+                            if (cached) {
+                                String etag = meta.getProperty("etag");
+                                String lastModified = meta.getProperty("lastModified");
+                                if (etag != null) {
+                                    request.getHeaders().setIfNoneMatch(etag);
+                                }
+                                if (lastModified != null) {
+                                    request.getHeaders().set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                                }
+                            }
+                            try (OutputStream out = request.getBody()) {
+                                out.write(("data=" + URLEncoder.encode(query, StandardCharsets.UTF_8))
+                                        .getBytes(StandardCharsets.UTF_8));
+                            }
+                        },
+                        response -> {
+                            HttpStatus code = HttpStatus.valueOf(response.getStatusCode().value());
+                            if (code.is2xxSuccessful()) {
+                                try (InputStream in = response.getBody()) {
+                                    Files.copy(in, download, StandardCopyOption.REPLACE_EXISTING);
+                                }
+                                String error = runtimeError(download);
+                                if (error != null) {
+                                    throw new IOException("Overpass " + error);
+                                }
+                                Properties fresh = new Properties();
+                                fresh.setProperty("query", query);
+                                copyHeader(response.getHeaders().getETag(), "etag", fresh);
+                                copyHeader(response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED), "lastModified", fresh);
+                                fresh.setProperty("fetchedAt", Instant.now().toString());
+                                Files.move(download, body, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                                writeMeta(metaFile, fresh);
+                            }
+                            return code;
+                        });
+
+                if (status == HttpStatus.NOT_MODIFIED && cached) {
+                    meta.setProperty("fetchedAt", Instant.now().toString());
+                    writeMeta(metaFile, meta);
+                    log.debug("Overpass cache revalidated {}", key);
+                    return Optional.of(body);
+                }
+                if (status != null && status.is2xxSuccessful()) {
+                    return Optional.of(body);
+                }
+                log.warn("Overpass returned {} for query: {}", status, query);
+            } finally {
+                Files.deleteIfExists(download);
+            }
+        } catch (Exception e) {
+            log.warn("Overpass request failed: {}", e.getMessage());
+        }
+
+        if (cached) {
+            log.info("Serving stale Overpass response {}", key);
+            return Optional.of(body);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The response's remark when it reports a runtime error, otherwise null. Only top-level fields are
+     * read; the elements are skipped without being built.
+     */
+    private String runtimeError(Path response) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(response.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return "response is not a JSON object";
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("remark".equals(field) && parser.getText().contains("runtime error")) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
+
+    private String cacheKey(String query) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((url + "\n" + query).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean isExpired(Properties meta) {
+        String fetchedAt = meta.getProperty("fetchedAt");
+        return fetchedAt == null || Instant.parse(fetchedAt).plus(ttl).isBefore(Instant.now());
+    }
+
+    private static Properties readMeta(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            meta.load(reader);
+            return meta;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeMeta(Path file, Properties meta) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            meta.store(writer, null);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void copyHeader(String value, String name, Properties meta) {
+        if (value != null && !value.isEmpty()) {
+            meta.setProperty(name, value);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.trajets.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.trajets.dto.OsmRouteData;
+import com.trajets.dto.OsmStopData;
+import com.trajets.geo.EncodedPolyline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Reads an Overpass "out geom" response token by token. Way geometries go straight into a primitive
+ * coordinate buffer and stop nodes into OsmStopData, so neither the response text nor a JSON tree is
+ * ever held in memory: peak usage is about the size of the extracted routes. Members may list their
+ * fields in any order, so a way's points are appended as they are read and dropped again if its role
+ * turns out to be a stop or platform.
+ */
+class OverpassResponseParser {
+
+    private final JsonFactory jsonFactory;
+
+    OverpassResponseParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Returns the requested relations found in the response, by relation id.
+     */
+    Map<String, OsmRouteData> parse(InputStream in, Set<String> relationIds) throws IOException {
+        Map<String, OsmRouteData> result = new HashMap<>();
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("elements".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        Element element = readElement(parser);
+                        if ("relation".equals(element.type) && relationIds.contains(element.id)) {
+                            result.put(element.id, element.toRouteData());
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    private Element readElement(JsonParser parser) throws IOException {
+        Element element = new Element();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "type" -> element.type = parser.getText();
+                case "id" -> element.id = parser.getText();
+                case "tags" -> readTags(parser, element);
+                case "members" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            readMember(parser, element);
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return element;
+    }
+
+    private void readTags(JsonParser parser, Element element) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            parser.nextToken();
+            if ("ref".equals(key)) {
+                element.ref = parser.getText();
+            } else if ("name".equals(key)) {
+                element.name = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readMember(JsonParser parser, Element element) throws IOException {
+        String type = null;
+        String role = "";
+        String name = null;
+        long ref = 0;
+        double lat = Double.NaN;
+        double lon = Double.NaN;
+        int geometryStart = element.coordinates.size();
+        boolean hasGeometry = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "type" -> type = parser.getText();
+                case "role" -> role = parser.getText();
+                case "name" -> name = parser.getText();
+                case "ref" -> ref = parser.getValueAsLong();
+                case "lat" -> lat = parser.getValueAsDouble();
+                case "lon" -> lon = parser.getValueAsDouble();
+                case "geometry" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        hasGeometry = true;
+                        readPoints(parser, element.coordinates);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        boolean stopRole = role.contains("stop") || role.contains("platform");
+        if ("way".equals(type) && !stopRole && hasGeometry && element.coordinates.size() > geometryStart) {
+            element.segmentStarts.add(geometryStart);
+        } else {
+            element.coordinates.truncate(geometryStart);
+        }
+
+        if ("node".equals(type) && stopRole && !Double.isNaN(lat) && !Double.isNaN(lon)) {
+            OsmStopData stop = new OsmStopData();
+            stop.setNodeId(String.valueOf(ref));
+            stop.setName(name != null ? name : "Stop " + stop.getNodeId());
+            stop.setLatitude(lat);
+            stop.setLongitude(lon);
+            stop.setOrder(element.stops.size() + 1);
+            element.stops.add(stop);
+        }
+    }
+
+    /**
+     * Appends the points of a geometry array as lon, lat pairs (GeoJSON order). Overpass writes
+     * null entries for nodes outside the query area; those are skipped.
+     */
+    private static void readPoints(JsonParser parser, DoubleBuffer coordinates) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            double lat = Double.NaN;
+            double lon = Double.NaN;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("lat".equals(field)) {
+                    lat = parser.getValueAsDouble();
+                } else if ("lon".equals(field)) {
+                    lon = parser.getValueAsDouble();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!Double.isNaN(lat) && !Double.isNaN(lon)) {
+                coordinates.add(lon);
+                coordinates.add(lat);
+            }
+        }
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected Overpass response: expected " + expected + " but got " + actual);
+        }
+    }
+
+    private final class Element {
+        String type;
+        String id;
+        String ref;
+        String name;
+        final DoubleBuffer coordinates = new DoubleBuffer();
+        final List<Integer> segmentStarts = new ArrayList<>();
+        final List<OsmStopData> stops = new ArrayList<>();
+
+        OsmRouteData toRouteData() {
+            OsmRouteData data = new OsmRouteData();
+            data.setRelationId(id);
+            data.setRef(ref != null ? ref : "Unknown");
+            data.setName(name != null ? name : "Unnamed");
+            // One segment per way, exactly as in OSM; stitching them together would draw spurious
+            // connections wherever the data has gaps or is unordered
+            data.setEncodedGeometry(EncodedPolyline.encode(coordinates.values, coordinates.size(), segmentStarts));
+            data.setStops(stops);
+            return data;
+        }
+    }
+
+    /**
+     * Growable double array, to avoid boxing every coordinate.
+     */
+    private static final class DoubleBuffer {
+        double[] values = new double[256];
+        int size;
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void truncate(int newSize) {
+            size = newSize;
+        }
+    }
+}
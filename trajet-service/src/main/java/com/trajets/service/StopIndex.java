@@ -0,0 +1,113 @@
+package com.trajets.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Known stops of an import run, by OSM node id and on a uniform lat/lon grid whose cells are as tall
+ * as the merge tolerance. A lookup checks the node id first, then the cells around the point, so it
+ * costs a few map reads and no query. Two stops that both carry an OSM node id are only ever merged
+ * by id: platforms for opposite directions can stand within the tolerance of each other. Not
+ * thread-safe: the importer serializes saves.
+ */
+class StopIndex {
+
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    record Entry(long id, double latitude, double longitude, String osmNodeId) {}
+
+    private final double toleranceMeters;
+    private final double cellDegrees;
+    private final Map<String, Entry> byNodeId = new HashMap<>();
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private int size;
+
+    StopIndex(double toleranceMeters) {
+        this.toleranceMeters = toleranceMeters;
+        this.cellDegrees = toleranceMeters / METERS_PER_DEGREE;
+    }
+
+    void add(Entry entry) {
+        if (entry.osmNodeId() != null) {
+            byNodeId.putIfAbsent(entry.osmNodeId(), entry);
+        }
+        cells.computeIfAbsent(cellKey(latCell(entry.latitude()), lonCell(entry.longitude())), key -> new ArrayList<>(2))
+                .add(entry);
+        size++;
+    }
+
+    void remove(Entry entry) {
+        if (entry.osmNodeId() != null) {
+            byNodeId.remove(entry.osmNodeId(), entry);
+        }
+        long key = cellKey(latCell(entry.latitude()), lonCell(entry.longitude()));
+        List<Entry> cell = cells.get(key);
+        if (cell != null && cell.remove(entry)) {
+            size--;
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The stop with this OSM node id or, failing that, the nearest stop within the tolerance; null if none.
+     * The distance fallback only pairs stops where at least one side has no node id.
+     */
+    Entry find(String osmNodeId, double latitude, double longitude) {
+        if (osmNodeId != null) {
+            Entry entry = byNodeId.get(osmNodeId);
+            if (entry != null) {
+                return entry;
+            }
+        }
+
+        // Cells are square in degrees, so a degree of longitude covers fewer meters away from the equator
+        double metersPerLonDegree = METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+        int lonRings = (int) Math.ceil(toleranceMeters / (metersPerLonDegree * cellDegrees));
+        int latCell = latCell(latitude);
+        int lonCell = lonCell(longitude);
+
+        Entry nearest = null;
+        double nearestMeters = toleranceMeters;
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLon = -lonRings; dLon <= lonRings; dLon++) {
+                List<Entry> cell = cells.get(cellKey(latCell + dLat, lonCell + dLon));
+                if (cell == null) {
+                    continue;
+                }
+                for (Entry entry : cell) {
+                    if (osmNodeId != null && entry.osmNodeId() != null) {
+                        continue; // distinct OSM nodes are distinct stops
+                    }
+                    double north = (entry.latitude() - latitude) * METERS_PER_DEGREE;
+                    double east = (entry.longitude() - longitude) * metersPerLonDegree;
+                    double meters = Math.sqrt(north * north + east * east);
+                    if (meters <= nearestMeters) {
+                        nearest = entry;
+                        nearestMeters = meters;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private int latCell(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int lonCell(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+}
@@ -0,0 +1,69 @@
+package com.trajets.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EncodedPolylineTest {
+
+    @Test
+    void encodesTheReferenceExample() {
+        // Google's documented example (38.5, -120.2), (40.7, -120.95), (43.252, -126.453) at 1e-5 is, digit for
+        // digit, the polyline6 encoding of the same points divided by ten
+        double[] coordinates = {-12.02, 3.85, -12.095, 4.07, -12.6453, 4.3252};
+
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", EncodedPolyline.encode(coordinates, coordinates.length, List.of(0)));
+    }
+
+    @Test
+    void roundTripsSegmentsThroughGeoJson() {
+        double[] coordinates = {
+                -6.841650, 34.020882, -6.835123, 34.015001, -6.830000, 34.010000,
+                -6.800001, 33.999999, -6.799999, 34.000001,
+                0.000001, -0.000001
+        };
+        String encoded = EncodedPolyline.encode(coordinates, coordinates.length, List.of(0, 6, 10));
+
+        assertEquals(2, encoded.chars().filter(c -> c == ' ').count());
+        assertEquals("{\"type\":\"MultiLineString\",\"coordinates\":["
+                        + "[[-6.84165,34.020882],[-6.835123,34.015001],[-6.83,34.01]],"
+                        + "[[-6.800001,33.999999],[-6.799999,34.000001]],"
+                        + "[[0.000001,-0.000001]]]}",
+                EncodedPolyline.toGeoJson(encoded));
+    }
+
+    @Test
+    void roundsToMicrodegrees() {
+        double[] coordinates = {-6.8416504, 34.0208826};
+        String encoded = EncodedPolyline.encode(coordinates, coordinates.length, List.of(0));
+
+        assertEquals("{\"type\":\"MultiLineString\",\"coordinates\":[[[-6.84165,34.020883]]]}",
+                EncodedPolyline.toGeoJson(encoded));
+    }
+
+    @Test
+    void summarizesWithoutCountingGapsBetweenSegments() {
+        // Two 0.001 degree north-south hops (about 111 m each), the second segment far away
+        double[] coordinates = {-6.8, 34.0, -6.8, 34.001, -7.5, 35.0, -7.5, 35.001};
+        EncodedPolyline.Summary summary = EncodedPolyline.summarize(
+                EncodedPolyline.encode(coordinates, coordinates.length, List.of(0, 4)));
+
+        assertEquals(34.0, summary.minLatitude(), 1e-9);
+        assertEquals(-7.5, summary.minLongitude(), 1e-9);
+        assertEquals(35.001, summary.maxLatitude(), 1e-9);
+        assertEquals(-6.8, summary.maxLongitude(), 1e-9);
+        assertEquals(222.4, summary.lengthMeters(), 0.1);
+        assertEquals(4, summary.vertexCount());
+    }
+
+    @Test
+    void handlesEmptyGeometry() {
+        String encoded = EncodedPolyline.encode(new double[0], 0, List.of());
+
+        assertEquals("", encoded);
+        assertEquals("{}", EncodedPolyline.toGeoJson(encoded));
+        assertEquals(0, EncodedPolyline.summarize(encoded).vertexCount());
+    }
+}
@@ -0,0 +1,90 @@
+package com.trajets.service;
+
+import com.trajets.dto.OsmRouteData;
+import com.trajets.dto.OsmStopData;
+import com.trajets.geo.EncodedPolyline;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reads src/test/resources/osm/fixture.osm.pbf, written with the reference osmpbf library. It holds a zlib
+ * blob of dense nodes, a raw blob with one plain node (custom granularity and offsets), a block of ways
+ * where way 14 has its refs written unpacked between packed ways, and a block of relations:
+ * <ul>
+ *   <li>5000 "L1": way 10 (nodes 100-102), stop node 101, way 11 (102, 103, missing 999, 104), platform
+ *   way 12, platform node 200 and missing way 77</li>
+ *   <li>5001: no tags and no members</li>
+ *   <li>5002 "L2": way 14 (103, 104) and stop node 105</li>
+ * </ul>
+ * Node 100 + i lies at (34 + i * 0.001, -6.8 + i * 0.001); node 200 at (33.5, -6.5).
+ */
+class OsmPbfExtractTest {
+
+    private static final Path FIXTURE = Path.of("src/test/resources/osm/fixture.osm.pbf");
+
+    private final OsmPbfExtract extract = new OsmPbfExtract(FIXTURE);
+
+    @Test
+    void readsRequestedRelations() throws Exception {
+        Map<String, OsmRouteData> routes = extract.readRoutes(List.of("5000", "5002", "9999", "not-a-number"));
+
+        assertEquals(Set.of("5000", "5002"), routes.keySet());
+    }
+
+    @Test
+    void buildsOneSegmentPerWayAndSkipsMissingNodes() throws Exception {
+        OsmRouteData route = extract.readRoutes(List.of("5000")).get("5000");
+
+        assertEquals("L1", route.getRef());
+        assertEquals("Line One", route.getName());
+        assertEquals("{\"type\":\"MultiLineString\",\"coordinates\":["
+                        + "[[-6.8,34],[-6.799,34.001],[-6.798,34.002]],"
+                        + "[[-6.798,34.002],[-6.797,34.003],[-6.796,34.004]]]}",
+                EncodedPolyline.toGeoJson(route.getEncodedGeometry()));
+    }
+
+    @Test
+    void readsStopNodesFromDenseAndPlainBlocks() throws Exception {
+        List<OsmStopData> stops = extract.readRoutes(List.of("5000")).get("5000").getStops();
+
+        assertEquals(2, stops.size());
+        assertStop(stops.get(0), "101", "Stop A", 34.001, -6.799, 1);
+        assertStop(stops.get(1), "200", "Line One", 33.5, -6.5, 2);
+    }
+
+    @Test
+    void readsWaysWithUnpackedRefs() throws Exception {
+        OsmRouteData route = extract.readRoutes(List.of("5002")).get("5002");
+
+        assertEquals("L2", route.getRef());
+        assertEquals("{\"type\":\"MultiLineString\",\"coordinates\":[[[-6.797,34.003],[-6.796,34.004]]]}",
+                EncodedPolyline.toGeoJson(route.getEncodedGeometry()));
+        assertEquals(1, route.getStops().size());
+        assertStop(route.getStops().get(0), "105", "Stop 105", 34.005, -6.795, 1);
+    }
+
+    @Test
+    void fallsBackToDefaultsForUntaggedRelations() throws Exception {
+        OsmRouteData route = extract.readRoutes(List.of("5001")).get("5001");
+
+        assertEquals("Unknown", route.getRef());
+        assertEquals("Unnamed", route.getName());
+        assertEquals("", route.getEncodedGeometry());
+        assertEquals(0, route.getStops().size());
+    }
+
+    private static void assertStop(OsmStopData stop, String nodeId, String name, double latitude, double longitude,
+                                   int order) {
+        assertEquals(nodeId, stop.getNodeId());
+        assertEquals(name, stop.getName());
+        assertEquals(latitude, stop.getLatitude(), 1e-7);
+        assertEquals(longitude, stop.getLongitude(), 1e-7);
+        assertEquals(order, stop.getOrder());
+    }
+}
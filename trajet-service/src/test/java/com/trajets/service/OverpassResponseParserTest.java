@@ -0,0 +1,102 @@
+package com.trajets.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.trajets.dto.OsmRouteData;
+import com.trajets.dto.OsmStopData;
+import com.trajets.geo.EncodedPolyline;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parses src/test/resources/overpass/fixture.json, an "out geom" response whose members list their fields
+ * in different orders:
+ * <ul>
+ *   <li>relation 7000 "L7", with its id after its members: way 10, platform way 11 (geometry before role),
+ *   way 12 (a null point), stop node 101, platform node 102 (no name), plain node 103, way 13 (empty
+ *   geometry), stop way 14 and way 15 (leading null point)</li>
+ *   <li>relation 7001, not requested, and a node that shares relation 7000's id</li>
+ *   <li>relation 7002: no tags, one way</li>
+ * </ul>
+ */
+class OverpassResponseParserTest {
+
+    private static final Path FIXTURE = Path.of("src/test/resources/overpass/fixture.json");
+
+    private final OverpassResponseParser parser = new OverpassResponseParser(new JsonFactory());
+
+    @Test
+    void keepsOnlyRequestedRelations() throws Exception {
+        Map<String, OsmRouteData> routes = parse(Set.of("7000", "7002", "9999"));
+
+        assertEquals(Set.of("7000", "7002"), routes.keySet());
+    }
+
+    @Test
+    void buildsOneSegmentPerRouteWayWhateverTheFieldOrder() throws Exception {
+        OsmRouteData route = parse(Set.of("7000")).get("7000");
+
+        assertEquals("7000", route.getRelationId());
+        assertEquals("L7", route.getRef());
+        assertEquals("Line Seven", route.getName());
+        // Platform and stop ways are dropped even when their geometry comes first, null points are skipped
+        assertEquals("{\"type\":\"MultiLineString\",\"coordinates\":["
+                        + "[[-6.8,34],[-6.799,34.001]],"
+                        + "[[-6.799,34.001],[-6.797,34.003]],"
+                        + "[[-6.796,34.004],[-6.795,34.005]]]}",
+                EncodedPolyline.toGeoJson(route.getEncodedGeometry()));
+    }
+
+    @Test
+    void readsStopAndPlatformNodesInOrder() throws Exception {
+        List<OsmStopData> stops = parse(Set.of("7000")).get("7000").getStops();
+
+        assertEquals(2, stops.size());
+        assertStop(stops.get(0), "101", "Bab Chellah", 34.001, -6.799, 1);
+        assertStop(stops.get(1), "102", "Stop 102", 34.003, -6.797, 2);
+    }
+
+    @Test
+    void defaultsMissingTags() throws Exception {
+        OsmRouteData route = parse(Set.of("7002")).get("7002");
+
+        assertEquals("Unknown", route.getRef());
+        assertEquals("Unnamed", route.getName());
+        assertEquals("{\"type\":\"MultiLineString\",\"coordinates\":[[[-6.5,33.5],[-6.501,33.501]]]}",
+                EncodedPolyline.toGeoJson(route.getEncodedGeometry()));
+        assertEquals(List.of(), route.getStops());
+    }
+
+    @Test
+    void rejectsAResponseThatIsNotAnObject() {
+        InputStream in = new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> parser.parse(in, Set.of("7000")));
+    }
+
+    private Map<String, OsmRouteData> parse(Set<String> relationIds) throws IOException {
+        try (InputStream in = Files.newInputStream(FIXTURE)) {
+            return parser.parse(in, relationIds);
+        }
+    }
+
+    private static void assertStop(OsmStopData stop, String nodeId, String name, double latitude, double longitude,
+                                   int order) {
+        assertEquals(nodeId, stop.getNodeId());
+        assertEquals(name, stop.getName());
+        assertEquals(latitude, stop.getLatitude(), 1e-7);
+        assertEquals(longitude, stop.getLongitude(), 1e-7);
+        assertEquals(order, stop.getOrder());
+    }
+}
@@ -0,0 +1,67 @@
+package com.trajets.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StopIndexTest {
+
+    // At 34 degrees north, 0.0001 degree of latitude is 11.1 m and 0.0001 degree of longitude 9.2 m
+    private static final double LAT = 34.02;
+    private static final double LON = -6.84;
+
+    private final StopIndex index = new StopIndex(15);
+
+    @Test
+    void findsAStopByNodeIdWhereverItIs() {
+        StopIndex.Entry stop = new StopIndex.Entry(1, LAT, LON, "100");
+        index.add(stop);
+
+        assertSame(stop, index.find("100", LAT + 0.01, LON + 0.01));
+    }
+
+    @Test
+    void mergesByDistanceWithinTheTolerance() {
+        StopIndex.Entry stop = new StopIndex.Entry(1, LAT, LON, "100");
+        index.add(stop);
+
+        assertSame(stop, index.find(null, LAT + 0.0001, LON), "11 m north");
+        assertSame(stop, index.find(null, LAT, LON - 0.00015), "14 m west, across cells");
+        assertNull(index.find(null, LAT + 0.0002, LON), "22 m north");
+    }
+
+    @Test
+    void mergesAStopWithoutNodeIdIntoAnIncomingNode() {
+        StopIndex.Entry stop = new StopIndex.Entry(1, LAT, LON, null);
+        index.add(stop);
+
+        assertSame(stop, index.find("100", LAT + 0.0001, LON));
+    }
+
+    @Test
+    void keepsNearbyStopsWithDifferentNodeIdsApart() {
+        // Platforms for opposite directions, 11 m apart
+        StopIndex.Entry northbound = new StopIndex.Entry(1, LAT, LON, "100");
+        StopIndex.Entry southbound = new StopIndex.Entry(2, LAT + 0.0001, LON, "101");
+        index.add(northbound);
+
+        assertNull(index.find("101", southbound.latitude(), southbound.longitude()));
+
+        index.add(southbound);
+        assertSame(southbound, index.find("101", LAT, LON));
+        assertSame(northbound, index.find(null, LAT + 0.00001, LON), "nearest wins without a node id");
+    }
+
+    @Test
+    void forgetsRemovedStops() {
+        StopIndex.Entry stop = new StopIndex.Entry(1, LAT, LON, "100");
+        index.add(stop);
+        index.remove(stop);
+
+        assertEquals(0, index.size());
+        assertNull(index.find("100", LAT, LON));
+        assertNull(index.find(null, LAT, LON));
+    }
+}